@@ -0,0 +1,38 @@
+package src;
+
+// shared settings of the benchmarks, every board uses the same seed so results
+// are comparable between commits
+final class Benchmarks {
+    static final long SEED = 0x5EEDC0FFEEL;
+
+    private Benchmarks() {
+    }
+
+    // parse the height out of a "HEIGHTxWIDTH" parameter
+    static int height(String size) {
+        return Integer.parseInt(size.substring(0, size.indexOf('x')));
+    }
+
+    // parse the width out of a "HEIGHTxWIDTH" parameter
+    static int width(String size) {
+        return Integer.parseInt(size.substring(size.indexOf('x') + 1));
+    }
+
+    // the topology named by a parameter (classic, torus or hex) of the given size
+    static Topology topology(String name, int height, int width) {
+        return switch (name) {
+            case "torus" -> Topology.torus(height, width);
+            case "hex" -> Topology.hex(height, width);
+            default -> Topology.classic(height, width);
+        };
+    }
+
+    // flag every mine of a board, the way a perfect player would
+    static void flagAllMines(Board board) {
+        for (int index = 0; index < board.getHeight() * board.getWidth(); index++) {
+            if (board.getMine(index) && !board.getFlagged(index)) {
+                board.rightClick(index / board.getWidth(), index % board.getWidth());
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package src;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// mine generation and neighbor counting for a new board, across sizes and
+// mine densities
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class BoardConstructionBenchmark {
+    @Param({ "16x30", "100x100", "1000x1000" })
+    public String size;
+
+    @Param({ "0.10", "0.21", "0.50", "0.90" })
+    public double density;
+
+    private int height;
+    private int width;
+    private int nMines;
+
+    @Setup
+    public void setup() {
+        this.height = Benchmarks.height(this.size);
+        this.width = Benchmarks.width(this.size);
+        this.nMines = (int) (this.height * this.width * this.density);
+    }
+
+    @Benchmark
+    public Board construct() {
+        return new Board(this.height, this.width, this.nMines, this.height / 2, this.width / 2, Benchmarks.SEED, false);
+    }
+}
@@ -0,0 +1,61 @@
+package src;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// rightClick chording: with every mine flagged, repeatedly chord every revealed
+// number until the board is cleared
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ChordBenchmark {
+    @Param({ "100x100", "1000x1000" })
+    public String size;
+
+    private int height;
+    private int width;
+    private Board board;
+
+    @Setup
+    public void setup() {
+        this.height = Benchmarks.height(this.size);
+        this.width = Benchmarks.width(this.size);
+    }
+
+    @Setup(Level.Invocation)
+    public void newBoard() {
+        this.board = new Board(this.height, this.width, this.height * this.width / 5, this.height / 2,
+                this.width / 2, Benchmarks.SEED, true);
+        this.board.leftClick(this.height / 2, this.width / 2);
+        Benchmarks.flagAllMines(this.board);
+    }
+
+    @Benchmark
+    public int chordUntilCleared() {
+        int before;
+        do {
+            before = this.board.getCellsUncovered();
+            for (int index = 0; index < this.height * this.width; index++) {
+                if (this.board.getRevealed(index)) {
+                    this.board.rightClick(index / this.width, index % this.width);
+                }
+            }
+        } while (this.board.getCellsUncovered() != before);
+        return this.board.getCellsUncovered();
+    }
+}
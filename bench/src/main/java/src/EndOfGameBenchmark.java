@@ -0,0 +1,76 @@
+package src;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// end of game reveal: revealing the whole model, and painting a screen sized
+// viewport of the revealed board the way Game does it
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class EndOfGameBenchmark {
+    @Param({ "100x100", "1000x1000" })
+    public String size;
+
+    private int height;
+    private int width;
+    private Board board;
+    private BoardView view;
+    private BufferedImage screen;
+    private Graphics2D graphics;
+
+    @Setup
+    public void setup() {
+        this.height = Benchmarks.height(this.size);
+        this.width = Benchmarks.width(this.size);
+        this.screen = new BufferedImage(1600, 900, BufferedImage.TYPE_INT_RGB);
+        this.graphics = this.screen.createGraphics();
+    }
+
+    @Setup(Level.Invocation)
+    public void newBoard() {
+        this.board = new Board(this.height, this.width, this.height * this.width / 5, 0, 0, Benchmarks.SEED, true);
+        this.board.leftClick(0, 0);
+
+        this.view = new BoardView(this.height, this.width, 32);
+        this.view.setBoard(this.board);
+        this.view.setSize(this.view.getPreferredSize());
+        this.graphics.setClip(0, 0, this.screen.getWidth(), this.screen.getHeight());
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.graphics.dispose();
+    }
+
+    @Benchmark
+    public int revealModel() {
+        this.board.revealAll();
+        return this.board.getCellsUncovered();
+    }
+
+    @Benchmark
+    public BufferedImage paintRevealedViewport() {
+        this.view.setRevealAll(true);
+        this.view.paint(this.graphics);
+        return this.screen;
+    }
+}
@@ -0,0 +1,69 @@
+package src;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// flood reveal on an all-empty board (one flood opens everything) and on a
+// fragmented board (every safe cell is left clicked, opening many small regions),
+// on every topology
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class FloodRevealBenchmark {
+    @Param({ "100x100", "1000x1000" })
+    public String size;
+
+    @Param({ "classic", "torus", "hex" })
+    public String topology;
+
+    private Topology cells;
+    private int height;
+    private int width;
+    private Board empty;
+    private Board fragmented;
+
+    @Setup
+    public void setup() {
+        this.height = Benchmarks.height(this.size);
+        this.width = Benchmarks.width(this.size);
+        this.cells = Benchmarks.topology(this.topology, this.height, this.width);
+    }
+
+    // every measurement needs an untouched board
+    @Setup(Level.Invocation)
+    public void newBoards() {
+        this.empty = new Board(this.cells, 0, 0, 0, Benchmarks.SEED, false);
+        this.fragmented = new Board(this.cells, this.height * this.width * 15 / 100, 0, 0, Benchmarks.SEED, false);
+    }
+
+    @Benchmark
+    public int allEmpty() {
+        this.empty.leftClick(0, 0);
+        return this.empty.getCellsUncovered();
+    }
+
+    @Benchmark
+    public int fragmented() {
+        for (int index = 0; index < this.height * this.width; index++) {
+            if (!this.fragmented.getMine(index)) {
+                this.fragmented.leftClick(index / this.width, index % this.width);
+            }
+        }
+        return this.fragmented.getCellsUncovered();
+    }
+}
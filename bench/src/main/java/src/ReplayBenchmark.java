@@ -0,0 +1,89 @@
+package src;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// replay an action journal at full speed, board generation included
+//
+// by default a game played by the solver is recorded first, pass a journal of a
+// real session with -p journal=/path/to/game.csj to reproduce it instead
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ReplayBenchmark {
+    @Param({ "" })
+    public String journal;
+
+    @Param({ "100x100" })
+    public String size;
+
+    private Replay replay;
+
+    @Setup
+    public void setup() throws IOException, InterruptedException {
+        Path path;
+        if (this.journal.isEmpty()) {
+            path = Files.createTempFile("coffeesweeper", ".csj");
+            path.toFile().deleteOnExit();
+            record(path, Benchmarks.height(this.size), Benchmarks.width(this.size));
+        } else {
+            path = Paths.get(this.journal);
+        }
+        this.replay = Replay.load(path);
+    }
+
+    @Benchmark
+    public Board replay() {
+        return this.replay.run(false, null);
+    }
+
+    // play a game with the solver, flagging every mine it finds, and journal it
+    private static void record(Path path, int height, int width) throws IOException, InterruptedException {
+        int nMines = height * width / 6;
+        int first = (height / 2) * width + width / 2;
+        Board board = new Board(height, width, nMines, height / 2, width / 2, Benchmarks.SEED, true);
+        Solver solver = new Solver(board);
+        board.addBoardListener(solver);
+
+        ActionJournal journal = new ActionJournal(path, height, width, nMines, Benchmarks.SEED, true);
+        journal.record(first, ActionJournal.LEFT_CLICK);
+        board.leftClick(height / 2, width / 2);
+
+        while (board.getState() == src.State.IN_PROGRESS) {
+            solver.deduce();
+            for (int index = 0; index < height * width; index++) {
+                if (solver.isMine(index) && !board.getFlagged(index)) {
+                    journal.record(index, ActionJournal.RIGHT_CLICK);
+                    board.rightClick(index / width, index % width);
+                }
+            }
+            int index = solver.nextSafe();
+            if (index < 0) {
+                index = solver.bestGuess();
+            }
+            journal.record(index, ActionJournal.LEFT_CLICK);
+            board.leftClick(index / width, index % width);
+        }
+
+        journal.close();
+        journal.awaitWritten();
+    }
+}
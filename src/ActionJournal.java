@@ -0,0 +1,192 @@
+package src;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// an action journal records every action of a game so it can be replayed
+// exactly (see Replay)
+//
+// the header holds everything needed to regenerate the board, the first record
+// is the first click (which places the mines). every record is two varints:
+// (flat index << 2 | action type) and the microseconds since the previous
+// action. records are encoded into a buffer on the caller's thread (the EDT)
+// and whole buffers are written to the file on a background writer thread.
+// a buffer is handed to the writer once it is full, or FLUSH_MILLIS after the
+// first record in it, so a crash loses at most the actions of the last
+// FLUSH_MILLIS (and whatever the writer had not written yet).
+//
+// header layout (big-endian):
+// 0  : magic "CSJR"
+// 4  : format version
+// 8  : height
+// 12 : width
+// 16 : number of mines
+// 20 : seed
+// 28 : flags (bit 0: safe opening)
+public class ActionJournal implements Closeable {
+    static final int MAGIC = 0x43534A52; // "CSJR"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 29;
+
+    static final int FLAG_SAFE_OPENING = 0x01;
+
+    // action types, stored in the low 2 bits of a record's first varint
+    static final int LEFT_CLICK = 0;
+    static final int RIGHT_CLICK = 1;
+    // undo and redo have no cell, their index is 0
+    static final int UNDO = 2;
+    static final int REDO = 3;
+
+    private static final int BUFFER_BYTES = 8 * 1024;
+    // longest a record waits in the buffer before it is handed to the writer
+    static final long FLUSH_MILLIS = 20;
+    // an index and a delta take at most 5 and 10 bytes
+    private static final int MAX_RECORD_BYTES = 15;
+
+    // one writer thread for every journal, so the writes of a journal stay in
+    // order, it also runs the timed flushes. it exits when idle, so it never
+    // keeps the JVM alive
+    private static final ScheduledThreadPoolExecutor WRITER = new ScheduledThreadPoolExecutor(1,
+            runnable -> new Thread(runnable, "action-journal"));
+
+    static {
+        WRITER.setKeepAliveTime(1, TimeUnit.SECONDS);
+        WRITER.allowCoreThreadTimeOut(true);
+    }
+
+    private final FileChannel channel;
+    private byte[] buffer = new byte[BUFFER_BYTES];
+    private int position;
+    private long lastNanos;
+    private boolean closed;
+    // set while a timed flush of the buffer is pending
+    private boolean flushScheduled;
+    // set by the writer thread if a write failed, the journal is then dropped
+    private volatile IOException failure;
+
+    // start a journal of a board generated from (height, width, nMines, seed,
+    // safeOpening) and the first click, replacing any file at path
+    public ActionJournal(Path path, int height, int width, int nMines, long seed, boolean safeOpening)
+            throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION)
+                .putInt(height).putInt(width).putInt(nMines)
+                .putLong(seed).put((byte) (safeOpening ? FLAG_SAFE_OPENING : 0));
+        header.flip();
+        while (header.hasRemaining()) {
+            this.channel.write(header);
+        }
+    }
+
+    // record an action on the cell at a flat index, call it before the action
+    // is performed, so that an action that throws is in the journal (it reaches
+    // the file within FLUSH_MILLIS, see above)
+    public synchronized void record(int index, int type) {
+        if (this.closed) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        long delta = this.lastNanos == 0 ? 0 : (now - this.lastNanos) / 1000;
+        this.lastNanos = now;
+
+        if (this.position + MAX_RECORD_BYTES > this.buffer.length) {
+            this.flush();
+        }
+        this.putVarint(((long) index << 2) | type);
+        this.putVarint(Math.max(0, delta));
+
+        if (!this.flushScheduled) {
+            this.flushScheduled = true;
+            WRITER.schedule(this::flush, FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // hand the buffered records to the writer thread
+    public synchronized void flush() {
+        this.flushScheduled = false;
+        if (this.position == 0) {
+            return;
+        }
+
+        byte[] full = this.buffer;
+        int length = this.position;
+        this.buffer = new byte[BUFFER_BYTES];
+        this.position = 0;
+        WRITER.execute(() -> this.write(full, length));
+    }
+
+    // flush the remaining records and close the file once they are written
+    // (does not wait for the writer thread)
+    @Override
+    public synchronized void close() {
+        if (this.closed) {
+            return;
+        }
+        this.flush();
+        this.closed = true;
+        WRITER.execute(() -> {
+            try {
+                this.channel.close();
+            } catch (IOException e) {
+                this.fail(e);
+            }
+        });
+    }
+
+    // block until everything flushed or closed so far is on disk (for tools and
+    // benchmarks that read the journal back right away, never on the EDT)
+    public void awaitWritten() throws InterruptedException {
+        try {
+            WRITER.submit(() -> { }).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // the first write error, if any
+    public IOException getFailure() {
+        return this.failure;
+    }
+
+    // append a buffer to the file (writer thread only)
+    private void write(byte[] bytes, int length) {
+        if (this.failure != null) {
+            return;
+        }
+        try {
+            ByteBuffer source = ByteBuffer.wrap(bytes, 0, length);
+            while (source.hasRemaining()) {
+                this.channel.write(source);
+            }
+        } catch (IOException e) {
+            this.fail(e);
+        }
+    }
+
+    private void fail(IOException e) {
+        if (this.failure == null) {
+            this.failure = e;
+            System.err.println("Action journal disabled: " + e.getMessage());
+        }
+    }
+
+    // unsigned LEB128: 7 bits per byte, high bit set on all but the last byte
+    private void putVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            this.buffer[this.position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        this.buffer[this.position++] = (byte) value;
+    }
+}
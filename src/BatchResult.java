@@ -0,0 +1,73 @@
+package src;
+
+import java.util.Arrays;
+
+// a batch result describes what one batch of actions (see Board.apply) did to a
+// board: the cells it revealed with their values, the state of the game after
+// it, and which action lost the game if one did
+//
+// a bot keeps one result and passes it to every call, its arrays only grow
+public class BatchResult {
+    private int[] cells = new int[64];
+    private byte[] values = new byte[64];
+    private int revealed;
+    private int applied;
+    private int losingAction = -1;
+    private State state = State.IN_PROGRESS;
+
+    // forget the previous batch, keeping the arrays
+    void clear() {
+        this.revealed = 0;
+        this.applied = 0;
+        this.losingAction = -1;
+    }
+
+    // add a cell revealed by the batch, value is its number of neighboring mines
+    // or -1 for a mine
+    void addRevealed(int index, int value) {
+        if (this.revealed == this.cells.length) {
+            this.cells = Arrays.copyOf(this.cells, this.revealed * 2);
+            this.values = Arrays.copyOf(this.values, this.revealed * 2);
+        }
+        this.cells[this.revealed] = index;
+        this.values[this.revealed] = (byte) value;
+        this.revealed++;
+    }
+
+    void finish(int applied, int losingAction, State state) {
+        this.applied = applied;
+        this.losingAction = losingAction;
+        this.state = state;
+    }
+
+    // number of cells the batch revealed
+    public int getRevealedCount() {
+        return this.revealed;
+    }
+
+    // the flat index of the i-th cell revealed, in the order they were revealed
+    public int getRevealedCell(int i) {
+        return this.cells[i];
+    }
+
+    // the number of neighboring mines of the i-th cell revealed, -1 for a mine
+    public int getRevealedValue(int i) {
+        return this.values[i];
+    }
+
+    // number of actions applied, the rest of a batch is skipped once the game is
+    // over
+    public int getApplied() {
+        return this.applied;
+    }
+
+    // position in the batch of the action that revealed a mine, -1 if none did
+    public int getLosingAction() {
+        return this.losingAction;
+    }
+
+    // state of the game after the batch
+    public State getState() {
+        return this.state;
+    }
+}
@@ -1,87 +1,159 @@
 package src;
 
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.Queue;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.BiConsumer;
-
-import javax.swing.JButton;
-
-// a board contains a 2D array of cells that may be uncovered or flagged
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+// a board contains a grid of cells that may be uncovered or flagged
+// it has no GUI: changes are reported to BoardListeners once per action
+//
+// which cells touch is up to the board's Topology (the classic grid unless
+// another one is given), the board only ever walks its neighbor table
 public class Board {
+    // action types of a batch (see apply), an action is (flat index << 2 | type)
+    public static final int REVEAL = 0;
+    public static final int TOGGLE_FLAG = 1;
+    public static final int SET_FLAG = 2;
+    public static final int CHORD = 3;
+
     private int height;
     private int width;
+    private final Topology topology;
     private int nMines;
+    private long seed;
 
-    private Cell[][] cells;
-    private JButton[][] buttons;
+    private CellGrid cells;
     private int cellsUncovered;
+    // cells flagged, kept up to date so it is never counted
+    private int flags;
 
     private State state = State.IN_PROGRESS;
 
-    // relative offset for neighboring cells
-    // used in forEachNeighbor
-    private static final List<int[]> DIRECTIONS = List.of(
-            new int[] { -1, -1 }, new int[] { -1, 0 }, new int[] { -1, 1 },
-            new int[] { 0, -1 }, new int[] { 0, 1 },
-            new int[] { 1, -1 }, new int[] { 1, 0 }, new int[] { 1, 1 });
+    // flat indices of the cells changed by the current action
+    private final IntStack changed = new IntStack();
+    private final List<BoardListener> listeners = new ArrayList<>();
+
+    // reusable work stack of flat indices for flood reveal
+    private final IntStack work = new IntStack();
+    // reusable buffer for the neighbors of one cell
+    private final int[] neighbors;
+    // set when the current action revealed a mine
+    private boolean mineRevealed;
+    // cells changed by every action, to undo and redo them (null when disabled)
+    private UndoLog undoLog;
+    // collects the cells revealed while a batch is applied, null otherwise
+    private BatchResult batch;
+    // cells visited and cells uncovered before the current flood, for metrics
+    private int floodVisited;
+    private int floodUncoveredBefore;
+
+    // boards with at least this many cells per band count neighbors in parallel
+    static final int PARALLEL_COUNT_CELLS = 1 << 18;
 
     Board(int height, int width, int nMines, int firstRow, int firstCol) {
-        this.height = height;
-        this.width = width;
-        this.nMines = nMines;
-        this.cellsUncovered = 0;
+        this(height, width, nMines, firstRow, firstCol, new SplittableRandom().nextLong(), false);
+    }
 
-        // generate a boolean array of mines
-        boolean[][] mineMap = generateMines(firstRow, firstCol);
+    // create a reproducible board: the same seed always places the same mines
+    // if safeOpening is set, the first click and its neighbors are kept free of
+    // mines (when there is room for it)
+    Board(int height, int width, int nMines, int firstRow, int firstCol, long seed, boolean safeOpening) {
+        this(Topology.classic(height, width), nMines, firstRow, firstCol, seed, safeOpening);
+    }
 
-        // create cells using the mineMap from above
-        this.cells = new Cell[this.height][this.width];
-        for (int row = 0; row < this.height; row++) {
-            for (int col = 0; col < this.width; col++) {
-                this.cells[row][col] = new Cell(
-                        mineMap[row][col],
-                        this.countNeighborMines(mineMap, row, col));
-            }
+    // create a reproducible board of any topology, firstRow and firstCol are a
+    // cell of its raster (see Topology)
+    Board(Topology topology, int nMines, int firstRow, int firstCol, long seed, boolean safeOpening) {
+        this.topology = topology;
+        this.height = topology.getRows();
+        this.width = topology.getCols();
+        this.neighbors = new int[topology.maxNeighbors()];
+        this.cells = new CellGrid(this.height, this.width);
+        this.generate(nMines, firstRow, firstCol, seed, safeOpening);
+    }
+
+    // restore a saved board: the grid holds the mine, revealed and flagged bits of
+    // every cell, the neighbor counts are derived from the mines
+    Board(CellGrid cells, int nMines, long seed, State state, int cellsUncovered) {
+        this.height = cells.getHeight();
+        this.width = cells.getWidth();
+        this.topology = Topology.classic(this.height, this.width);
+        this.neighbors = new int[this.topology.maxNeighbors()];
+        this.cells = cells;
+        this.nMines = nMines;
+        this.seed = seed;
+        this.countAllNeighborMines();
+        this.state = state;
+        this.cellsUncovered = cellsUncovered;
+        for (int index = 0; index < cells.size(); index += 64) {
+            this.flags += Long.bitCount(cells.getPlane(index, CellGrid.FLAGGED));
+        }
+        this.mineRevealed = state == State.LOST;
+    }
+
+    // start a new game on the same board: regenerate the mines in place and clear
+    // all progress, reusing every array (listeners stay registered, and are not
+    // told about the reset)
+    void reset(int nMines, int firstRow, int firstCol, long seed, boolean safeOpening) {
+        this.cells.clear();
+        this.changed.clear();
+        this.work.clear();
+        if (this.undoLog != null) {
+            this.undoLog.clear();
         }
+        this.state = State.IN_PROGRESS;
+        this.generate(nMines, firstRow, firstCol, seed, safeOpening);
+    }
 
-        // hold refs to GUI buttons
-        this.buttons = new JButton[this.height][this.width];
+    // place the mines in the (empty) grid and count the neighbors of every cell
+    private void generate(int nMines, int firstRow, int firstCol, long seed, boolean safeOpening) {
+        this.nMines = nMines;
+        this.seed = seed;
+        this.cellsUncovered = 0;
+        this.flags = 0;
+
+        GameEvents.BoardGenerated event = new GameEvents.BoardGenerated();
+        event.begin();
+        long start = System.nanoTime();
+
+        // place mines directly into the grid
+        MineGenerator.generate(this.cells, this.topology, this.nMines, firstRow, firstCol, safeOpening, seed);
+        this.countAllNeighborMines();
+
+        GameMetrics.get().boardGenerated(System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.height = this.height;
+            event.width = this.width;
+            event.nMines = this.nMines;
+            event.seed = seed;
+            event.commit();
+        }
     }
 
     // print out the board for debug purposes
+    // the whole board is built in one buffer from a single read of every cell
+    // and printed at once
     public void drawBoard() {
+        StringBuilder out = new StringBuilder(this.height * (this.width * 3 + 1));
+        String newline = System.lineSeparator();
+        int index = 0;
         for (int row = 0; row < this.height; row++) {
-            StringBuilder outRow = new StringBuilder();
-            for (int col = 0; col < this.width; col++) {
-                if (!this.getCell(row, col).getRevealed()) {
-                    outRow.append(GameCharset.BLANK.getDisplayChar());
-                } else if (this.getCell(row, col).getFlagged()) {
-                    outRow.append(GameCharset.FLAG.getDisplayChar());
-                } else if (this.getCell(row, col).getMine()) {
-                    outRow.append(GameCharset.MINE.getDisplayChar());
+            for (int col = 0; col < this.width; col++, index++) {
+                int cell = this.cells.get(index);
+                if ((cell & CellGrid.REVEALED) == 0) {
+                    out.append(GameCharset.BLANK.getDisplayChar());
+                } else if ((cell & CellGrid.MINE) != 0) {
+                    out.append(GameCharset.MINE.getDisplayChar());
                 } else {
-                    outRow.append(this.getCell(row, col).getNeighborMines());
+                    out.append(cell & CellGrid.NEIGHBOR_MASK);
                 }
-                outRow.append(' ');
-            }
-            System.out.println(outRow.toString());
-        }
-    }
-
-    // perform the given action on all neighbors (8-directional adjacent)
-    private void forEachNeighbor(int row, int col, BiConsumer<Integer, Integer> action) {
-        for (int[] dir : DIRECTIONS) {
-            int r = row + dir[0];
-            int c = col + dir[1];
-
-            if (isValidCell(r, c)) {
-                action.accept(r, c);
+                out.append(' ');
             }
+            out.append(newline);
         }
+        System.out.print(out);
+        System.out.flush();
     }
 
     // check bounds to validate cell
@@ -89,10 +161,10 @@ public class Board {
         return row >= 0 && row < this.height && col >= 0 && col < this.width;
     }
 
-    // after uncovering a cell, check if the player has won, lost, or is in progress
-    public void updateState(int row, int col) {
+    // after uncovering cells, check if the player has won, lost, or is in progress
+    private void updateState() {
         // if the user uncoverd a mine, end the game
-        if (this.getCell(row, col).getMine()) {
+        if (this.mineRevealed || this.state == State.LOST) {
             this.state = State.LOST;
         }
         // if there are more cells to reveal than mines, game is still in progress
@@ -110,38 +182,34 @@ public class Board {
         return this.state;
     }
 
-    // generate a boolean map of mines
-    private boolean[][] generateMines(int rowSafe, int colSafe) {
-        boolean[][] mines = new boolean[this.height][this.width];
-
-        // create random mines
-        for (int m = 0; m < this.nMines; m++) {
-            int row = (int) (Math.random() * height);
-            int col = (int) (Math.random() * width);
+    // return the seed the mines were generated from
+    public long getSeed() {
+        return this.seed;
+    }
 
-            // if the mine already exists, or is in the first safe space, try again
-            if (mines[row][col] == true || (row == rowSafe && col == colSafe)) {
-                m--;
-            } else {
-                mines[row][col] = true;
-            }
+    // count the neighboring mines of every cell
+    // large boards are split into row bands that are counted in parallel, the
+    // classic grid with sliding row sums and other topologies from their
+    // neighbor table
+    private void countAllNeighborMines() {
+        int bands = (int) Math.min(Runtime.getRuntime().availableProcessors() * 4L,
+                (long) this.height * this.width / PARALLEL_COUNT_CELLS);
+        if (bands <= 1) {
+            this.countNeighborMines(0, this.height);
+            return;
         }
 
-        return mines;
+        int rowsPerBand = (this.height + bands - 1) / bands;
+        IntStream.range(0, bands).parallel().forEach(band -> this.countNeighborMines(
+                Math.min(this.height, band * rowsPerBand), Math.min(this.height, (band + 1) * rowsPerBand)));
     }
 
-    // count how many mines border the cell
-    private int countNeighborMines(boolean[][] mineMap, int row, int col) {
-        AtomicInteger count = new AtomicInteger(0);
-
-        // look in 8 neighboring cells for a mine
-        this.forEachNeighbor(row, col, (r, c) -> {
-            if (mineMap[r][c]) {
-                count.incrementAndGet();
-            }
-        });
-
-        return count.get();
+    private void countNeighborMines(int fromRow, int toRow) {
+        if (this.topology.isClassic()) {
+            this.cells.countNeighborMines(fromRow, toRow);
+        } else {
+            this.cells.countNeighborMines(this.topology, fromRow * this.width, toRow * this.width);
+        }
     }
 
     // fetch a ref to a cell with given row, col coordinates
@@ -150,40 +218,155 @@ public class Board {
             throw new IllegalArgumentException("Attempted to fetch a cell that doesn't exist.");
         }
 
-        return this.cells[row][col];
+        return new Cell(this.cells, this.cells.indexOf(row, col));
     }
 
-    // assign a button to a row and col coordinate
-    public void setButton(JButton button, int row, int col) {
-        if (!this.isValidCell(row, col)) {
-            throw new IllegalArgumentException("Attempted to set a button that doesn't exist.");
+    // return the GameCharset value for the cell at a flat index
+    public char getDisplayChar(int index) {
+        return this.cells.getDisplayChar(index);
+    }
+
+    public boolean getRevealed(int index) {
+        return this.cells.getRevealed(index);
+    }
+
+    public boolean getFlagged(int index) {
+        return this.cells.getFlagged(index);
+    }
+
+    public boolean getMine(int index) {
+        return this.cells.getMine(index);
+    }
+
+    public int getNeighborMines(int index) {
+        return this.cells.getNeighborMines(index);
+    }
+
+    // which cells touch each other
+    public Topology getTopology() {
+        return this.topology;
+    }
+
+    // the packed cells of the board (used to save it)
+    CellGrid getCells() {
+        return this.cells;
+    }
+
+    public int getMines() {
+        return this.nMines;
+    }
+
+    public int getCellsUncovered() {
+        return this.cellsUncovered;
+    }
+
+    public int getFlags() {
+        return this.flags;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    // listeners receive one batch of changed cells per action
+    public void addBoardListener(BoardListener listener) {
+        this.listeners.add(listener);
+    }
+
+    public void removeBoardListener(BoardListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    // send the cells changed by the current action to every listener, then
+    // start a new batch
+    private void fireBoardChanged() {
+        if (this.undoLog != null) {
+            this.undoLog.commit();
+        }
+        if (this.changed.isEmpty()) {
+            return;
         }
 
-        this.buttons[row][col] = button;
+        for (BoardListener listener : this.listeners) {
+            listener.boardChanged(this, this.changed.values(), this.changed.size());
+        }
+        this.changed.clear();
     }
 
-    // update the button text to reveal what is in the underlying cell, and disable
-    // it
-    public void revealAndDisableButton(int row, int col) {
-        if (!this.isValidCell(row, col)) {
-            throw new IllegalArgumentException("Attempted to reveal a button that doesn't exist.");
+    // reveal every cell of the board (used to show the board once the game is
+    // over, does not count towards cells uncovered and can't be undone)
+    public void revealAll() {
+        if (this.undoLog != null) {
+            this.undoLog.clear();
+        }
+        for (int index = 0; index < this.cells.size(); index++) {
+            if (!this.cells.getRevealed(index) || this.cells.getFlagged(index)) {
+                if (this.cells.getFlagged(index)) {
+                    this.flags--;
+                }
+                this.cells.reveal(index);
+                this.changed.push(index);
+            }
         }
+        this.fireBoardChanged();
+    }
 
-        JButton button = this.buttons[row][col];
+    // keep a log of every action from now on, so they can be undone and redone
+    // (memory grows with the number of cells changed)
+    public void setUndoEnabled(boolean enabled) {
+        this.undoLog = enabled ? new UndoLog() : null;
+    }
 
-        button.setText(Character.toString(this.getCell(row, col).getDisplayChar()));
-        button.setEnabled(false);
+    public boolean canUndo() {
+        return this.undoLog != null && this.undoLog.canUndo();
     }
 
-    // update the button text to reveal what is in the underlying cell
-    public void revealButton(int row, int col) {
-        if (!this.isValidCell(row, col)) {
-            throw new IllegalArgumentException("Attempted to flag a button that doesn't exist.");
+    public boolean canRedo() {
+        return this.undoLog != null && this.undoLog.canRedo();
+    }
+
+    // take back the last action (a losing click included), return false if
+    // there is nothing to undo
+    public boolean undo() {
+        if (!this.canUndo()) {
+            return false;
         }
+        this.swapCounters(this.undoLog.undo(this.cells, this.changed));
+        this.fireBoardChanged();
+        return true;
+    }
+
+    // play the last undone action again, return false if there is none
+    public boolean redo() {
+        if (!this.canRedo()) {
+            return false;
+        }
+        this.swapCounters(this.undoLog.redo(this.cells, this.changed));
+        this.fireBoardChanged();
+        return true;
+    }
 
-        JButton button = this.buttons[row][col];
+    // exchange cells uncovered, flags and state with the ones logged for an
+    // action
+    private void swapCounters(int action) {
+        int cellsUncovered = this.undoLog.getUncovered(action);
+        int flags = this.undoLog.getFlags(action);
+        State state = this.undoLog.getState(action);
+        this.undoLog.setCounters(action, this.cellsUncovered, this.flags, this.state);
+        this.cellsUncovered = cellsUncovered;
+        this.flags = flags;
+        this.state = state;
+    }
 
-        button.setText(Character.toString(this.getCell(row, col).getDisplayChar()));
+    // log the value of a cell before the current action changes it
+    private void recordUndo(int index) {
+        if (this.undoLog != null) {
+            this.undoLog.record(index, this.cells.get(index), this.cellsUncovered, this.flags, this.state);
+        }
     }
 
     // left clicking on a cell will reveal it
@@ -192,94 +375,210 @@ public class Board {
         if (!cell.getRevealed()) {
             this.floodReveal(row, col);
         }
+        this.fireBoardChanged();
     }
 
     // right clicking on a cell with toggle the flag, or flood reveal if enough
     // neighboring cells are flagged
     public void rightClick(int row, int col) {
-        Cell cell = this.getCell(row, col);
-        // if the cell isn't revealed, flag it
-        if (!cell.getRevealed()) {
-            cell.Flag();
-            this.revealButton(row, col);
+        if (!this.getCell(row, col).getRevealed()) {
+            this.toggleFlag(row, col);
+        } else {
+            this.chord(row, col);
         }
-        // if the cell is revealed, and it's touching as many flags as its val,
-        // reveal all touching cells
-        else {
-            // count flag neighbors
-            AtomicInteger neighborFlags = new AtomicInteger(0);
-            Queue<Integer> queueUncover = new LinkedList<>();
-
-            // look in 8 neighboring cells for empty cells
-            this.forEachNeighbor(row, col, (r, c) -> {
-                // queue cell for uncovering if it's ready
-                Cell neighbor = getCell(r, c);
-                if (!neighbor.getRevealed()) {
-                    // if the neighbor is flagged, count it
-                    if (neighbor.getFlagged()) {
-                        neighborFlags.incrementAndGet();
+    }
+
+    // flag or unflag a cell that isn't revealed yet
+    public void toggleFlag(int row, int col) {
+        this.getCell(row, col);
+        this.toggleFlag(this.cells.indexOf(row, col));
+        this.fireBoardChanged();
+    }
+
+    // if the cell is revealed, and it's touching as many flags as its val,
+    // reveal all touching cells
+    public void chord(int row, int col) {
+        this.getCell(row, col);
+        GameEvents.Chord event = new GameEvents.Chord();
+        event.begin();
+        long start = System.nanoTime();
+
+        if (this.chord(this.cells.indexOf(row, col))) {
+            int revealed = this.cellsUncovered - this.floodUncoveredBefore;
+            GameMetrics.get().floodRevealed(true, revealed, System.nanoTime() - start);
+            if (event.shouldCommit()) {
+                event.height = this.height;
+                event.width = this.width;
+                event.cellsRevealed = revealed;
+                event.regionSize = this.floodVisited;
+                event.commit();
+            }
+        }
+        this.fireBoardChanged();
+    }
+
+    // encode one action of a batch
+    public static int action(int type, int index) {
+        return index << 2 | type;
+    }
+
+    // apply count actions of actions, starting at offset, in order and describe
+    // what they did in result (which is cleared first), for bots that play many
+    // moves per call
+    //
+    // the whole batch is a single change for listeners and for undo. actions on
+    // cells they don't apply to do nothing (revealing a revealed cell, chording a
+    // covered one), and once the game is over the rest of the batch is skipped.
+    // batches are not timed or traced per action like clicks are
+    public BatchResult apply(int[] actions, int offset, int count, BatchResult result) {
+        // check every cell first, so a bad action leaves the board untouched
+        int size = this.cells.size();
+        for (int i = offset; i < offset + count; i++) {
+            if ((actions[i] >>> 2) >= size) {
+                throw new IllegalArgumentException("Attempted to fetch a cell that doesn't exist.");
+            }
+        }
+
+        result.clear();
+        this.batch = result;
+        int applied = 0;
+        try {
+            for (; applied < count && this.state == State.IN_PROGRESS; applied++) {
+                int action = actions[offset + applied];
+                int index = action >>> 2;
+                switch (action & 0x03) {
+                    case REVEAL -> {
+                        if (!this.cells.getRevealed(index)) {
+                            this.beginFlood();
+                            this.queueReveal(index);
+                            this.drainReveals();
+                            this.updateState();
+                        }
                     }
-                    // if the neighbor isn't flagged, queue it
-                    else {
-                        queueUncover.add(r);
-                        queueUncover.add(c);
+                    case TOGGLE_FLAG -> this.toggleFlag(index);
+                    case SET_FLAG -> {
+                        if (!this.cells.getFlagged(index)) {
+                            this.toggleFlag(index);
+                        }
                     }
+                    default -> this.chord(index);
                 }
-            });
+            }
+        } finally {
+            this.batch = null;
+        }
 
-            // if the cell is surrounded by as many flagged cells as mines, reveal them
-            if (Character.getNumericValue(cell.getDisplayChar()) == neighborFlags.get()) {
-                while (!queueUncover.isEmpty()) {
-                    int rUncover = queueUncover.remove();
-                    int cUncover = queueUncover.remove();
+        // the game can only be lost by the last action applied
+        result.finish(applied, this.state == State.LOST && applied > 0 ? applied - 1 : -1, this.state);
+        this.fireBoardChanged();
+        return result;
+    }
 
-                    this.floodReveal(rUncover, cUncover);
-                }
+    // flag or unflag the cell at index if it isn't revealed
+    private void toggleFlag(int index) {
+        if (!this.cells.getRevealed(index)) {
+            this.recordUndo(index);
+            this.cells.flag(index);
+            this.flags += this.cells.getFlagged(index) ? 1 : -1;
+            this.changed.push(index);
+        }
+    }
+
+    // reveal the neighbors of a revealed number at index that touches as many
+    // flags as its number, return false if it doesn't
+    private boolean chord(int index) {
+        int neighborMines = this.cells.getNeighborMines(index);
+        if (!this.cells.getRevealed(index) || this.cells.getMine(index) || neighborMines == 0) {
+            return false;
+        }
+
+        // count flag neighbors
+        int n = this.topology.neighbors(index, this.neighbors);
+        int neighborFlags = 0;
+        for (int i = 0; i < n; i++) {
+            if (this.cells.getFlagged(this.neighbors[i])) {
+                neighborFlags++;
             }
         }
+        if (neighborMines != neighborFlags) {
+            return false;
+        }
+
+        // reveal all touching cells in a single flood
+        this.beginFlood();
+        for (int i = 0; i < n; i++) {
+            this.queueReveal(this.neighbors[i]);
+        }
+        this.drainReveals();
+        this.updateState();
+        return true;
     }
 
     // reveal the cell at row, col
     // if the revealed cell is a 0 (empty), reveal all neighbors
     private void floodReveal(int row, int col) {
-        Queue<Integer> queue = new LinkedList<>();
-        Map<String, Boolean> checked = new HashMap<>();
-        queue.add(row);
-        queue.add(col);
-
-        while (!queue.isEmpty()) {
-            // get the head of the queue
-            int rHead = queue.remove();
-            int cHead = queue.remove();
-            Cell cell = this.getCell(rHead, cHead);
-
-            // stop if the cell is flagged or revealed
-            if (cell.getFlagged() || cell.getRevealed()) {
-                continue;
-            }
+        GameEvents.FloodReveal event = new GameEvents.FloodReveal();
+        event.begin();
+        long start = System.nanoTime();
+
+        this.beginFlood();
+        this.queueReveal(this.cells.indexOf(row, col));
+        this.drainReveals();
+        this.updateState();
+
+        int revealed = this.cellsUncovered - this.floodUncoveredBefore;
+        GameMetrics.get().floodRevealed(false, revealed, System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.height = this.height;
+            event.width = this.width;
+            event.cellsRevealed = revealed;
+            event.regionSize = this.floodVisited;
+            event.commit();
+        }
+    }
 
-            // stop if the cell has already been flood revealed
-            if (checked.containsKey(String.format("%d,%d", rHead, cHead))) {
-                continue;
-            }
-            // otherwise, hash and continue
-            checked.put(String.format("%d,%d", rHead, cHead), true);
+    // reset the per-action counters before queueing the first cell of a flood
+    private void beginFlood() {
+        this.mineRevealed = false;
+        this.floodVisited = 0;
+        this.floodUncoveredBefore = this.cellsUncovered;
+    }
+
+    // reveal the cell at index and push it on the work stack
+    // the cell is revealed as it is queued, so it can never be queued twice
+    private void queueReveal(int index) {
+        this.floodVisited++;
+
+        // stop if the cell is flagged or revealed
+        if (this.cells.getFlagged(index) || this.cells.getRevealed(index)) {
+            return;
+        }
 
-            // reveal the cell
-            int revealed = cell.Reveal();
-            this.cellsUncovered++;
-            this.revealAndDisableButton(rHead, cHead);
-            this.updateState(rHead, cHead);
+        this.recordUndo(index);
+        int value = this.cells.reveal(index);
+        if (value == -1) {
+            this.mineRevealed = true;
+        }
+        if (this.batch != null) {
+            this.batch.addRevealed(index, value);
+        }
+        this.cellsUncovered++;
+        this.work.push(index);
+        this.changed.push(index);
+    }
+
+    // pop revealed cells off the work stack until it is empty
+    // every cell that was empty queues its neighbors
+    private void drainReveals() {
+        while (!this.work.isEmpty()) {
+            int index = this.work.pop();
 
             // if cell was empty, reveal its neighbors
-            if (revealed == 0) {
-                this.forEachNeighbor(rHead, cHead, (r, c) -> {
-                    // enqueue revealed cell if it has not already been revealed
-                    if (!this.getCell(r, c).getRevealed()) {
-                        queue.add(r);
-                        queue.add(c);
-                    }
-                });
+            if (!this.cells.getMine(index) && this.cells.getNeighborMines(index) == 0) {
+                int n = this.topology.neighbors(index, this.neighbors);
+                for (int i = 0; i < n; i++) {
+                    this.queueReveal(this.neighbors[i]);
+                }
             }
         }
     }
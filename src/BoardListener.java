@@ -0,0 +1,10 @@
+package src;
+
+// a board listener is told about every cell that changed during one player action
+//
+// changed holds the flat indices (row * width + col) of the changed cells in its
+// first count entries. the array is reused by the board, so it is only valid for
+// the duration of the call and must be copied if it is kept.
+public interface BoardListener {
+    void boardChanged(Board board, int[] changed, int count);
+}
@@ -0,0 +1,426 @@
+package src;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Insets;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+import javax.swing.JComponent;
+import javax.swing.JScrollPane;
+import javax.swing.JViewport;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+
+// a board view paints the whole board as a single component, straight from the
+// model, instead of laying out one button per cell
+//
+// every kind of cell is drawn once into a tile atlas, and painting copies tiles
+// for the cells inside the clip only. changes from the board repaint the
+// bounding rectangle of the changed cells. inside a JScrollPane only the visible
+// cells are ever touched, and ctrl + mouse wheel zooms. below LOD_CELL_SIZE the
+// view switches to an overview that paints one colored pixel per cell.
+//
+// with hints (see HintOverlay) covered cells are shaded by their chance of
+// holding a mine, and cells that are certainly safe are marked green.
+public class BoardView extends JComponent implements BoardListener, Scrollable {
+    private static final long serialVersionUID = 1L;
+
+    // tiles of the atlas: covered, flagged, mine, then revealed 0-8
+    private static final int TILE_COVERED = 0;
+    private static final int TILE_FLAG = 1;
+    private static final int TILE_MINE = 2;
+    private static final int TILE_REVEALED = 3;
+
+    // zoom limits, in pixels per cell
+    static final int MIN_CELL_SIZE = 1;
+    static final int MAX_CELL_SIZE = 64;
+    // below this size glyphs are unreadable, so cells are drawn as flat colors
+    private static final int LOD_CELL_SIZE = 8;
+
+    // colors of the numbers 1-8
+    private static final Color[] NUMBER_COLORS = {
+            null, Color.BLUE, new Color(0, 128, 0), Color.RED, new Color(0, 0, 128),
+            new Color(128, 0, 0), new Color(0, 128, 128), Color.BLACK, Color.GRAY };
+
+    // overview colors, one per tile
+    private static final int[] OVERVIEW_COLORS = {
+            0xEEEEEE, 0xFF0000, 0x000000, 0xD6D6D6,
+            0xB8C8E8, 0x9AB4E0, 0x7C9FD8, 0x5E8BD0, 0x4076C8, 0x2262C0, 0x044DB8, 0x003EA0 };
+
+    // hint shades: index 0 marks a safe cell, 1-HINT_SHADES shade a covered cell
+    // from unlikely to certainly a mine
+    private static final int HINT_SHADES = 16;
+    private static final Color[] HINT_COLORS = new Color[HINT_SHADES + 1];
+    private static final int[] HINT_OVERVIEW_COLORS = new int[HINT_SHADES + 1];
+
+    static {
+        HINT_COLORS[0] = new Color(0, 200, 0, 140);
+        HINT_OVERVIEW_COLORS[0] = 0x66D966;
+        for (int shade = 1; shade <= HINT_SHADES; shade++) {
+            int alpha = 160 * shade / HINT_SHADES;
+            HINT_COLORS[shade] = new Color(255, 0, 0, alpha);
+            // the covered color blended with the same red
+            int other = 0xEE * (255 - alpha) / 255;
+            HINT_OVERVIEW_COLORS[shade] = 0xFF0000 | other << 8 | other;
+        }
+    }
+
+    private final int rows;
+    private final int cols;
+    private int cellSize;
+    private Font font;
+
+    private Board board;
+    private boolean revealAll = false;
+    private HintOverlay.Snapshot hints;
+    private BufferedImage[] tiles;
+    // reusable image for the overview, one pixel per visible cell
+    private BufferedImage overview;
+
+    // click-to-paint latency: started by a click, handed over to the next paint
+    // once the click changed the board
+    private GameEvents.ClickToPaint clickEvent;
+    private long clickNanos;
+    private GameEvents.ClickToPaint paintEvent;
+    private long paintNanos;
+
+    BoardView(int rows, int cols, int cellSize) {
+        this.rows = rows;
+        this.cols = cols;
+        this.setCellSizeInternal(cellSize);
+
+        this.setOpaque(true);
+        this.addMouseWheelListener(this::mouseWheelMoved);
+    }
+
+    // show a board, before this is called every cell is painted as covered
+    public void setBoard(Board board) {
+        this.board = board;
+        this.repaint();
+    }
+
+    // paint every cell as if it was revealed, without touching the model
+    // (used to show the board once the game is over, only visible cells are drawn)
+    public void setRevealAll(boolean revealAll) {
+        this.revealAll = revealAll;
+        this.repaint();
+    }
+
+    // shade covered cells by the probabilities of a snapshot, null for none
+    public void setHints(HintOverlay.Snapshot hints) {
+        this.hints = hints;
+        this.repaint();
+    }
+
+    // mark the start of a click, called before the click is applied to the board
+    public void clickStarted() {
+        this.clickEvent = new GameEvents.ClickToPaint();
+        this.clickEvent.begin();
+        this.clickNanos = System.nanoTime();
+    }
+
+    public int getCellSize() {
+        return this.cellSize;
+    }
+
+    // zoom to a new cell size, keeping the cell under anchor (a point of the
+    // component) in place inside the viewport
+    public void setCellSize(int cellSize, Point anchor) {
+        int oldSize = this.cellSize;
+        this.setCellSizeInternal(cellSize);
+        if (this.cellSize == oldSize) {
+            return;
+        }
+
+        this.revalidate();
+
+        JViewport viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+        if (viewport != null && anchor != null) {
+            Insets insets = this.getInsets();
+            Point position = viewport.getViewPosition();
+            int x = insets.left + (int) ((long) (anchor.x - insets.left) * this.cellSize / oldSize);
+            int y = insets.top + (int) ((long) (anchor.y - insets.top) * this.cellSize / oldSize);
+
+            // the view has to take its new size before the position can move
+            viewport.doLayout();
+            viewport.setViewPosition(new Point(
+                    Math.max(0, position.x + x - anchor.x),
+                    Math.max(0, position.y + y - anchor.y)));
+        }
+        this.repaint();
+    }
+
+    private void setCellSizeInternal(int cellSize) {
+        this.cellSize = Math.max(MIN_CELL_SIZE, Math.min(MAX_CELL_SIZE, cellSize));
+        this.font = new Font("Arial", Font.PLAIN, Math.max(1, this.cellSize * 2 / 5));
+        this.tiles = null;
+    }
+
+    // ctrl + wheel zooms, anything else scrolls the enclosing scroll pane
+    private void mouseWheelMoved(MouseWheelEvent e) {
+        if (e.isControlDown()) {
+            int step = Math.max(1, this.cellSize / 8);
+            this.setCellSize(this.cellSize - e.getWheelRotation() * step, e.getPoint());
+            e.consume();
+        }
+        else {
+            JScrollPane scrollPane = (JScrollPane) SwingUtilities.getAncestorOfClass(JScrollPane.class, this);
+            if (scrollPane != null) {
+                scrollPane.dispatchEvent(SwingUtilities.convertMouseEvent(this, e, scrollPane));
+            }
+        }
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        Insets insets = this.getInsets();
+        return new Dimension(
+                this.cols * this.cellSize + insets.left + insets.right,
+                this.rows * this.cellSize + insets.top + insets.bottom);
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return this.getPreferredSize();
+    }
+
+    // scroll by one cell at a time
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return this.cellSize;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return false;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+
+    // map a point of the component to the flat index of a cell, -1 if outside
+    public int cellAt(int x, int y) {
+        Insets insets = this.getInsets();
+        int px = x - insets.left;
+        int py = y - insets.top;
+        if (px < 0 || py < 0) {
+            return -1;
+        }
+
+        int row = py / this.cellSize;
+        int col = px / this.cellSize;
+        if (row >= this.rows || col >= this.cols) {
+            return -1;
+        }
+
+        return row * this.cols + col;
+    }
+
+    // repaint only the area covered by the changed cells
+    @Override
+    public void boardChanged(Board board, int[] changed, int count) {
+        if (this.clickEvent != null) {
+            this.clickEvent.height = this.rows;
+            this.clickEvent.width = this.cols;
+            this.clickEvent.cellsChanged = count;
+            this.paintEvent = this.clickEvent;
+            this.paintNanos = this.clickNanos;
+            this.clickEvent = null;
+        }
+
+        int rowMin = Integer.MAX_VALUE, rowMax = -1;
+        int colMin = Integer.MAX_VALUE, colMax = -1;
+
+        for (int i = 0; i < count; i++) {
+            int row = changed[i] / this.cols;
+            int col = changed[i] - row * this.cols;
+            rowMin = Math.min(rowMin, row);
+            rowMax = Math.max(rowMax, row);
+            colMin = Math.min(colMin, col);
+            colMax = Math.max(colMax, col);
+        }
+
+        if (rowMax >= 0) {
+            Insets insets = this.getInsets();
+            this.repaint(
+                    insets.left + colMin * this.cellSize,
+                    insets.top + rowMin * this.cellSize,
+                    (colMax - colMin + 1) * this.cellSize,
+                    (rowMax - rowMin + 1) * this.cellSize);
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        this.paintCells(g);
+
+        // the result of the last click is on screen now
+        if (this.paintEvent != null) {
+            GameMetrics.get().clickPainted(System.nanoTime() - this.paintNanos);
+            this.paintEvent.commit();
+            this.paintEvent = null;
+        }
+    }
+
+    private void paintCells(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, this.getWidth(), this.getHeight());
+        }
+
+        g.setColor(this.getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        // only walk the cells that intersect the clip
+        Insets insets = this.getInsets();
+        int rowFrom = Math.max(0, (clip.y - insets.top) / this.cellSize);
+        int rowTo = Math.min(this.rows - 1, (clip.y + clip.height - insets.top) / this.cellSize);
+        int colFrom = Math.max(0, (clip.x - insets.left) / this.cellSize);
+        int colTo = Math.min(this.cols - 1, (clip.x + clip.width - insets.left) / this.cellSize);
+        if (rowFrom > rowTo || colFrom > colTo) {
+            return;
+        }
+
+        if (this.cellSize < LOD_CELL_SIZE) {
+            this.paintOverview(g, rowFrom, rowTo, colFrom, colTo);
+            return;
+        }
+
+        if (this.tiles == null) {
+            this.tiles = this.createTiles();
+        }
+
+        for (int row = rowFrom; row <= rowTo; row++) {
+            int y = insets.top + row * this.cellSize;
+            for (int col = colFrom; col <= colTo; col++) {
+                int x = insets.left + col * this.cellSize;
+                int index = row * this.cols + col;
+                int tile = this.tileOf(index);
+                g.drawImage(this.tiles[tile], x, y, null);
+                if (tile == TILE_COVERED && this.hints != null && !this.revealAll) {
+                    g.setColor(HINT_COLORS[this.hintShade(index)]);
+                    g.fillRect(x + 2, y + 2, this.cellSize - 4, this.cellSize - 4);
+                }
+            }
+        }
+    }
+
+    // the hint shade of a covered cell, 0 if it is certainly safe
+    private int hintShade(int index) {
+        float probability = this.hints.getProbability(index);
+        return probability <= 0 ? 0 : Math.max(1, Math.round(probability * HINT_SHADES));
+    }
+
+    // write one pixel per visible cell into the overview image, then scale it up
+    // to the cell size in a single draw
+    private void paintOverview(Graphics g, int rowFrom, int rowTo, int colFrom, int colTo) {
+        int w = colTo - colFrom + 1;
+        int h = rowTo - rowFrom + 1;
+        if (this.overview == null || this.overview.getWidth() < w || this.overview.getHeight() < h) {
+            this.overview = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        }
+
+        int stride = this.overview.getWidth();
+        int[] pixels = ((DataBufferInt) this.overview.getRaster().getDataBuffer()).getData();
+        for (int row = rowFrom; row <= rowTo; row++) {
+            int offset = (row - rowFrom) * stride - colFrom;
+            for (int col = colFrom; col <= colTo; col++) {
+                int index = row * this.cols + col;
+                int tile = this.tileOf(index);
+                pixels[offset + col] = tile == TILE_COVERED && this.hints != null && !this.revealAll
+                        ? HINT_OVERVIEW_COLORS[this.hintShade(index)]
+                        : OVERVIEW_COLORS[tile];
+            }
+        }
+
+        Insets insets = this.getInsets();
+        int x = insets.left + colFrom * this.cellSize;
+        int y = insets.top + rowFrom * this.cellSize;
+        g.drawImage(this.overview, x, y, x + w * this.cellSize, y + h * this.cellSize, 0, 0, w, h, null);
+    }
+
+    // pick the atlas tile for the cell at a flat index
+    private int tileOf(int index) {
+        if (this.board == null) {
+            return TILE_COVERED;
+        }
+
+        if (this.revealAll) {
+            return this.board.getMine(index) ? TILE_MINE : TILE_REVEALED + this.board.getNeighborMines(index);
+        }
+        else if (this.board.getFlagged(index)) {
+            return TILE_FLAG;
+        }
+        else if (!this.board.getRevealed(index)) {
+            return TILE_COVERED;
+        }
+        else if (this.board.getMine(index)) {
+            return TILE_MINE;
+        }
+        else {
+            return TILE_REVEALED + this.board.getNeighborMines(index);
+        }
+    }
+
+    // draw every kind of cell once at the current cell size
+    private BufferedImage[] createTiles() {
+        BufferedImage[] atlas = new BufferedImage[TILE_REVEALED + 9];
+
+        atlas[TILE_COVERED] = this.createTile(false, GameCharset.BLANK.getDisplayChar(), Color.BLACK);
+        atlas[TILE_FLAG] = this.createTile(false, GameCharset.FLAG.getDisplayChar(), Color.RED);
+        atlas[TILE_MINE] = this.createTile(true, GameCharset.MINE.getDisplayChar(), Color.BLACK);
+        atlas[TILE_REVEALED] = this.createTile(true, GameCharset.BLANK.getDisplayChar(), Color.BLACK);
+        for (int n = 1; n <= 8; n++) {
+            atlas[TILE_REVEALED + n] = this.createTile(true, (char) ('0' + n), NUMBER_COLORS[n]);
+        }
+
+        return atlas;
+    }
+
+    private BufferedImage createTile(boolean revealed, char glyph, Color glyphColor) {
+        BufferedImage tile = new BufferedImage(this.cellSize, this.cellSize, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = tile.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+
+        if (revealed) {
+            g.setColor(new Color(0xD6D6D6));
+            g.fillRect(0, 0, this.cellSize, this.cellSize);
+            g.setColor(Color.GRAY);
+            g.drawRect(0, 0, this.cellSize - 1, this.cellSize - 1);
+        }
+        else {
+            g.setColor(new Color(0xEEEEEE));
+            g.fill3DRect(0, 0, this.cellSize, this.cellSize, true);
+        }
+
+        if (glyph != GameCharset.BLANK.getDisplayChar()) {
+            g.setFont(this.font);
+            g.setColor(glyphColor);
+            FontMetrics metrics = g.getFontMetrics();
+            String text = Character.toString(glyph);
+            g.drawString(text,
+                    (this.cellSize - metrics.stringWidth(text)) / 2,
+                    (this.cellSize - metrics.getHeight()) / 2 + metrics.getAscent());
+        }
+
+        g.dispose();
+        return tile;
+    }
+}
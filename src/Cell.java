@@ -1,79 +1,46 @@
 package src;
 
 // a cell is the unit that either contains a mine or a number of neighboring mines
+// the cell's state lives in the board's CellGrid, this is only a view onto it
 public class Cell {
-    // has a mine inside of it true/false
-    private final boolean mine;
-    // number of mines touching in the 8 immediate neighbors
-    private final int neighborMines;
+    private final CellGrid grid;
+    private final int index;
 
-    // has been revealed by user
-    private boolean revealed = false;
-    // has been flagged by user
-    private boolean flagged = false;
-
-    // create a cell with or without a mine, and a number of neighboring mines
-    public Cell(boolean mine, int neighborMines) {
-        this.mine = mine;
-        this.neighborMines = neighborMines;
+    // create a view of the cell stored at index in the grid
+    Cell(CellGrid grid, int index) {
+        this.grid = grid;
+        this.index = index;
     }
 
     // reveal the cell and return the value within (-1 if a mine)
     public int Reveal() {
-        this.revealed = true;
-        this.flagged = false;
-
-        if (this.mine) {
-            return -1;
-        }
-        else {
-            return neighborMines;
-        }
+        return this.grid.reveal(this.index);
     }
 
     // flag a cell (if it's not already revealed)
     public void Flag() {
-        if (!this.revealed) {
-            this.flagged = !this.flagged;
-        }
+        this.grid.flag(this.index);
     }
 
     // return the GameCharset value for the cell
     public char getDisplayChar() {
-        char displayChar;
-        if (this.getFlagged()) {
-            displayChar = GameCharset.FLAG.getDisplayChar();
-        }
-        else if (!this.getRevealed()) {
-            displayChar = GameCharset.BLANK.getDisplayChar();
-        }
-        else if (this.getMine()) {
-            displayChar = GameCharset.MINE.getDisplayChar();
-        }
-        else if (this.getNeighborMines() == 0) {
-            displayChar = GameCharset.BLANK.getDisplayChar();
-        }
-        else {
-            displayChar = (char) ('0' + this.getNeighborMines());
-        }
-
-        return displayChar;
+        return this.grid.getDisplayChar(this.index);
     }
 
     public boolean getMine() {
-        return this.mine;
+        return this.grid.getMine(this.index);
     }
 
     public int getNeighborMines() {
-        return this.neighborMines;
+        return this.grid.getNeighborMines(this.index);
     }
 
     public boolean getRevealed() {
-        return this.revealed;
+        return this.grid.getRevealed(this.index);
     }
-    
+
     public boolean getFlagged() {
-        return this.flagged;
-    }    
+        return this.grid.getFlagged(this.index);
+    }
 
 }
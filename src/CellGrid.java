@@ -0,0 +1,298 @@
+package src;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+// a cell grid packs every cell of a board into a single byte of a flat array,
+// indexed by row * width + col
+//
+// bit layout of a cell:
+// 0-4 : number of mines touching in the immediate neighbors (0-8 on the classic
+//       grid, up to 26 in 3d, see Topology)
+// 5   : has a mine inside of it
+// 6   : has been revealed by user
+// 7   : has been flagged by user
+public class CellGrid {
+    static final int NEIGHBOR_MASK = 0x1F;
+    static final int MINE = 0x20;
+    static final int REVEALED = 0x40;
+    static final int FLAGGED = 0x80;
+    private static final int MINE_SHIFT = 5;
+
+    // reads and writes 8 cells at once, cell index + i is byte i
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+    // atomic access to single cells, for grids shared between threads
+    private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+    // SPREAD[b] has bit i of b in the low bit of byte i
+    private static final long[] SPREAD = new long[256];
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            for (int i = 0; i < 8; i++) {
+                SPREAD[b] |= (long) ((b >>> i) & 1) << (i * 8);
+            }
+        }
+    }
+
+    private final int height;
+    private final int width;
+    private final byte[] cells;
+
+    CellGrid(int height, int width) {
+        // a flat byte array is indexed by int, so the board must fit in one
+        if ((long) height * width > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Board is too large to store in a single grid.");
+        }
+
+        this.height = height;
+        this.width = width;
+        this.cells = new byte[height * width];
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    // total number of cells in the grid
+    public int size() {
+        return this.cells.length;
+    }
+
+    // convert a row, col coordinate to a flat index
+    public int indexOf(int row, int col) {
+        return row * this.width + col;
+    }
+
+    // empty every cell, ready to generate a new board
+    void clear() {
+        Arrays.fill(this.cells, (byte) 0);
+    }
+
+    // pack one flag bit (MINE, REVEALED or FLAGGED) of up to 64 cells starting at
+    // index into a word, cell index + i goes to bit i
+    long getPlane(int index, int mask) {
+        int shift = Integer.numberOfTrailingZeros(mask);
+        long bits = 0;
+        if (index + 64 <= this.cells.length) {
+            // 8 cells at a time: keep the flag bit of every byte, then gather the 8
+            // bits into the top byte with a single multiply
+            for (int i = 0; i < 8; i++) {
+                long eight = (long) LONGS.get(this.cells, index + i * 8);
+                long spread = (eight >>> shift) & 0x0101010101010101L;
+                bits |= ((spread * 0x0102040810204080L) >>> 56) << (i * 8);
+            }
+            return bits;
+        }
+
+        for (int i = index; i < this.cells.length; i++) {
+            bits |= (long) ((this.cells[i] & mask) >>> shift) << (i - index);
+        }
+        return bits;
+    }
+
+    // set one flag bit of up to 64 cells from a word packed by getPlane (only
+    // used while loading a board)
+    void setPlane(int index, int mask, long bits) {
+        int shift = Integer.numberOfTrailingZeros(mask);
+        if (index + 64 <= this.cells.length) {
+            for (int i = 0; i < 8; i++) {
+                long spread = SPREAD[(int) (bits >>> (i * 8)) & 0xFF] << shift;
+                int at = index + i * 8;
+                LONGS.set(this.cells, at, (long) LONGS.get(this.cells, at) | spread);
+            }
+            return;
+        }
+
+        for (int i = index; i < this.cells.length; i++) {
+            this.cells[i] |= (byte) (((bits >>> (i - index)) & 1) << shift);
+        }
+    }
+
+    // count the neighboring mines of every cell in rows [fromRow, toRow) of the
+    // classic grid in a single pass (only used while generating the board)
+    //
+    // a sliding window keeps the horizontal sums (col - 1, col, col + 1) of the
+    // rows above, at and below the current row, the count of a cell is the sum
+    // of the three minus the cell itself. only the count bits of the rows in
+    // range are written, so disjoint row bands can be counted in parallel
+    void countNeighborMines(int fromRow, int toRow) {
+        byte[] above = new byte[this.width];
+        byte[] current = new byte[this.width];
+        byte[] below = new byte[this.width];
+        this.rowSums(fromRow - 1, above);
+        this.rowSums(fromRow, current);
+
+        for (int row = fromRow; row < toRow; row++) {
+            this.rowSums(row + 1, below);
+            int base = row * this.width;
+            for (int col = 0; col < this.width; col++) {
+                int cell = this.cells[base + col];
+                int count = above[col] + current[col] + below[col] - ((cell & MINE) >>> MINE_SHIFT);
+                this.cells[base + col] = (byte) ((cell & ~NEIGHBOR_MASK) | count);
+            }
+
+            byte[] done = above;
+            above = current;
+            current = below;
+            below = done;
+        }
+    }
+
+    // the number of mines in (col - 1, col, col + 1) of a row for every col, all
+    // zeros for a row outside of the grid
+    private void rowSums(int row, byte[] sums) {
+        if (row < 0 || row >= this.height) {
+            Arrays.fill(sums, (byte) 0);
+            return;
+        }
+
+        int base = row * this.width;
+        int left = 0;
+        int middle = (this.cells[base] & MINE) >>> MINE_SHIFT;
+        for (int col = 0; col < this.width; col++) {
+            int right = col + 1 < this.width ? (this.cells[base + col + 1] & MINE) >>> MINE_SHIFT : 0;
+            sums[col] = (byte) (left + middle + right);
+            left = middle;
+            middle = right;
+        }
+    }
+
+    // count the neighboring mines of every cell in [from, to) of any topology,
+    // from its neighbor table (only used while generating the board)
+    // only the count bits of the cells in range are written, so disjoint ranges
+    // can be counted in parallel
+    void countNeighborMines(Topology topology, int from, int to) {
+        int[] neighbors = new int[topology.maxNeighbors()];
+        for (int index = from; index < to; index++) {
+            int n = topology.neighbors(index, neighbors);
+            int count = 0;
+            for (int i = 0; i < n; i++) {
+                count += (this.cells[neighbors[i]] & MINE) >>> MINE_SHIFT;
+            }
+            this.cells[index] = (byte) ((this.cells[index] & ~NEIGHBOR_MASK) | count);
+        }
+    }
+
+    // the packed value of a cell (only used to undo and redo actions)
+    byte get(int index) {
+        return this.cells[index];
+    }
+
+    // replace the packed value of a cell (only used to undo and redo actions)
+    void set(int index, byte cell) {
+        this.cells[index] = cell;
+    }
+
+    // place a mine in the cell (only used while generating the board)
+    void setMine(int index) {
+        this.cells[index] |= MINE;
+    }
+
+    // remove a mine from the cell (only used while generating the board)
+    void clearMine(int index) {
+        this.cells[index] &= ~MINE;
+    }
+
+    // store the number of neighboring mines (only used while generating the board)
+    void setNeighborMines(int index, int neighborMines) {
+        this.cells[index] = (byte) ((this.cells[index] & ~NEIGHBOR_MASK) | neighborMines);
+    }
+
+    // reveal the cell and return the value within (-1 if a mine)
+    public int reveal(int index) {
+        int cell = (this.cells[index] | REVEALED) & ~FLAGGED;
+        this.cells[index] = (byte) cell;
+
+        if ((cell & MINE) != 0) {
+            return -1;
+        }
+        else {
+            return cell & NEIGHBOR_MASK;
+        }
+    }
+
+    // flag a cell (if it's not already revealed)
+    public void flag(int index) {
+        int cell = this.cells[index];
+        if ((cell & REVEALED) == 0) {
+            this.cells[index] = (byte) (cell ^ FLAGGED);
+        }
+    }
+
+    // the operations below are safe to call from many threads at once on a grid
+    // shared by a ConcurrentBoard (the plain ones above are not)
+
+    // read the packed cell with volatile semantics
+    int getVolatile(int index) {
+        return (byte) BYTES.getVolatile(this.cells, index);
+    }
+
+    // reveal a cell that is neither revealed nor flagged, returns the cell as it
+    // was before, or -1 if it was revealed or flagged (possibly by another thread)
+    // exactly one thread wins the reveal of a cell
+    int tryReveal(int index) {
+        int cell;
+        do {
+            cell = (byte) BYTES.getVolatile(this.cells, index);
+            if ((cell & (REVEALED | FLAGGED)) != 0) {
+                return -1;
+            }
+        } while (!BYTES.compareAndSet(this.cells, index, (byte) cell, (byte) (cell | REVEALED)));
+        return cell & 0xFF;
+    }
+
+    // toggle the flag of a cell that isn't revealed, returns false if it was
+    boolean tryToggleFlag(int index) {
+        int cell;
+        do {
+            cell = (byte) BYTES.getVolatile(this.cells, index);
+            if ((cell & REVEALED) != 0) {
+                return false;
+            }
+        } while (!BYTES.compareAndSet(this.cells, index, (byte) cell, (byte) (cell ^ FLAGGED)));
+        return true;
+    }
+
+    // return the GameCharset value for the cell
+    public char getDisplayChar(int index) {
+        int cell = this.cells[index];
+        if ((cell & FLAGGED) != 0) {
+            return GameCharset.FLAG.getDisplayChar();
+        }
+        else if ((cell & REVEALED) == 0) {
+            return GameCharset.BLANK.getDisplayChar();
+        }
+        else if ((cell & MINE) != 0) {
+            return GameCharset.MINE.getDisplayChar();
+        }
+        else if ((cell & NEIGHBOR_MASK) == 0) {
+            return GameCharset.BLANK.getDisplayChar();
+        }
+        else {
+            return (char) ('0' + (cell & NEIGHBOR_MASK));
+        }
+    }
+
+    public boolean getMine(int index) {
+        return (this.cells[index] & MINE) != 0;
+    }
+
+    public int getNeighborMines(int index) {
+        return this.cells[index] & NEIGHBOR_MASK;
+    }
+
+    public boolean getRevealed(int index) {
+        return (this.cells[index] & REVEALED) != 0;
+    }
+
+    public boolean getFlagged(int index) {
+        return (this.cells[index] & FLAGGED) != 0;
+    }
+}
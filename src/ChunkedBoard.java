@@ -0,0 +1,409 @@
+package src;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// a chunked board is an effectively unbounded board (any int row and col) that
+// is only ever generated where the player has been
+//
+// whether a cell holds a mine is a pure hash of (seed, row, col), so any chunk
+// (and the neighbor counts on its borders) can be derived on demand without
+// looking at its neighbors. touched chunks are kept as 64x64 byte arrays in the
+// same bit layout as CellGrid. the least recently used ones are evicted to a
+// compact form of revealed/flagged bits, or dropped entirely if the player never
+// changed them, so memory grows with what was explored, not with the board.
+public class ChunkedBoard {
+    static final int CHUNK_BITS = 6;
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    static final int CHUNK_CELLS = CHUNK_SIZE * CHUNK_SIZE;
+    private static final int LOCAL_MASK = CHUNK_SIZE - 1;
+
+    // below ~10% density the region of empty cells percolates, and a flood from
+    // an empty cell would never end. the minimum keeps a margin above that, where
+    // floods stay small
+    static final double MIN_DENSITY = 0.15;
+    static final int DEFAULT_LIVE_CHUNKS = 1024;
+
+    private final long seed;
+    private final long mineThreshold;
+    private final int maxLiveChunks;
+
+    // chunks that are being played, in access order
+    private final LinkedHashMap<Long, byte[]> live;
+    // evicted chunks: 64 words of revealed bits, then 64 words of flagged bits
+    private final Map<Long, long[]> compact = new HashMap<>();
+
+    // the last chunk looked up, which is almost always the next one too. it is
+    // used without touching live, so it is touched again when another chunk is
+    // looked up, before that one can evict anything
+    private long cachedKey;
+    private byte[] cachedChunk;
+
+    private boolean started = false;
+    private int safeRow;
+    private int safeCol;
+
+    private long cellsUncovered = 0;
+    private State state = State.IN_PROGRESS;
+
+    // reusable work stack of row, col pairs for flood reveal
+    private final IntStack work = new IntStack();
+    // set when the current action revealed a mine
+    private boolean mineRevealed;
+
+    ChunkedBoard(double density, long seed) {
+        this(density, seed, DEFAULT_LIVE_CHUNKS);
+    }
+
+    ChunkedBoard(double density, long seed, int maxLiveChunks) {
+        if (density < MIN_DENSITY || density >= 1) {
+            throw new IllegalArgumentException("Mine density must be between " + MIN_DENSITY + " and 1.");
+        }
+
+        this.seed = seed;
+        this.mineThreshold = (long) (density * (1L << 53));
+        this.maxLiveChunks = Math.max(1, maxLiveChunks);
+        this.live = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                if (this.size() > ChunkedBoard.this.maxLiveChunks) {
+                    ChunkedBoard.this.evict(eldest.getKey(), eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // return the seed the mines are derived from
+    public long getSeed() {
+        return this.seed;
+    }
+
+    // return game state: LOST or IN_PROGRESS (an unbounded board can't be won)
+    public State getState() {
+        return this.state;
+    }
+
+    public long getCellsUncovered() {
+        return this.cellsUncovered;
+    }
+
+    // number of chunks held as full byte arrays
+    public int getLiveChunks() {
+        return this.live.size();
+    }
+
+    // number of evicted chunks held as revealed/flagged bits
+    public int getCompactChunks() {
+        return this.compact.size();
+    }
+
+    // whether the chunk holding a cell is held as a full byte array
+    boolean isLive(int row, int col) {
+        return this.live.containsKey(keyOf(row, col));
+    }
+
+    // check if a cell holds a mine, derived from the seed alone
+    // the first click and its neighbors are always safe
+    private boolean isMine(int row, int col) {
+        if (this.started && Math.abs(row - this.safeRow) <= 1 && Math.abs(col - this.safeCol) <= 1) {
+            return false;
+        }
+
+        // SplitMix64 finalizer over the seed and coordinates
+        long z = this.seed + row * 0x9E3779B97F4A7C15L + col * 0xC2B2AE3D27D4EB4FL;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+
+        return (z >>> 11) < this.mineThreshold;
+    }
+
+    private static long keyOf(int row, int col) {
+        return ((long) (row >> CHUNK_BITS) << 32) | ((col >> CHUNK_BITS) & 0xFFFFFFFFL);
+    }
+
+    private static int localIndex(int row, int col) {
+        return ((row & LOCAL_MASK) << CHUNK_BITS) | (col & LOCAL_MASK);
+    }
+
+    // fetch the chunk holding a cell, generating or restoring it if needed
+    private byte[] chunkFor(int row, int col) {
+        long key = keyOf(row, col);
+        if (this.cachedChunk != null && this.cachedKey == key) {
+            return this.cachedChunk;
+        }
+        if (this.cachedChunk != null) {
+            this.live.get(this.cachedKey);
+        }
+
+        byte[] chunk = this.live.get(key);
+        if (chunk == null) {
+            chunk = this.generate(row & ~LOCAL_MASK, col & ~LOCAL_MASK, this.compact.remove(key));
+            this.live.put(key, chunk);
+        }
+
+        this.cachedKey = key;
+        this.cachedChunk = chunk;
+        return chunk;
+    }
+
+    // fetch the packed cell without generating anything, 0 (covered, no flag) for
+    // chunks that were never touched
+    private int peek(int row, int col) {
+        long key = keyOf(row, col);
+        int local = localIndex(row, col);
+
+        byte[] chunk = (this.cachedChunk != null && this.cachedKey == key) ? this.cachedChunk : this.live.get(key);
+        if (chunk != null) {
+            return chunk[local];
+        }
+
+        long[] bits = this.compact.get(key);
+        if (bits == null) {
+            return 0;
+        }
+
+        int cell = 0;
+        if ((bits[local >>> 6] & (1L << local)) != 0) {
+            // a revealed cell needs its value, so bring the chunk back
+            return this.chunkFor(row, col)[local];
+        }
+        if ((bits[64 + (local >>> 6)] & (1L << local)) != 0) {
+            cell |= CellGrid.FLAGGED;
+        }
+        return cell;
+    }
+
+    // derive the mines and neighbor counts of the chunk whose top left cell is
+    // (rowBase, colBase), then restore the player's bits if it was evicted
+    private byte[] generate(int rowBase, int colBase, long[] bits) {
+        // mines of the chunk plus a one cell border, so counts cross chunk edges
+        boolean[] mines = new boolean[(CHUNK_SIZE + 2) * (CHUNK_SIZE + 2)];
+        for (int r = 0; r < CHUNK_SIZE + 2; r++) {
+            for (int c = 0; c < CHUNK_SIZE + 2; c++) {
+                mines[r * (CHUNK_SIZE + 2) + c] = this.isMine(rowBase + r - 1, colBase + c - 1);
+            }
+        }
+
+        byte[] chunk = new byte[CHUNK_CELLS];
+        for (int r = 0; r < CHUNK_SIZE; r++) {
+            for (int c = 0; c < CHUNK_SIZE; c++) {
+                int center = (r + 1) * (CHUNK_SIZE + 2) + (c + 1);
+                int count = 0;
+                for (int dr = -1; dr <= 1; dr++) {
+                    for (int dc = -1; dc <= 1; dc++) {
+                        if ((dr != 0 || dc != 0) && mines[center + dr * (CHUNK_SIZE + 2) + dc]) {
+                            count++;
+                        }
+                    }
+                }
+
+                int cell = count;
+                if (mines[center]) {
+                    cell |= CellGrid.MINE;
+                }
+                chunk[(r << CHUNK_BITS) | c] = (byte) cell;
+            }
+        }
+
+        if (bits != null) {
+            for (int local = 0; local < CHUNK_CELLS; local++) {
+                if ((bits[local >>> 6] & (1L << local)) != 0) {
+                    chunk[local] |= CellGrid.REVEALED;
+                }
+                if ((bits[64 + (local >>> 6)] & (1L << local)) != 0) {
+                    chunk[local] |= CellGrid.FLAGGED;
+                }
+            }
+        }
+
+        return chunk;
+    }
+
+    // keep only the player's bits of an evicted chunk, nothing if it was untouched
+    private void evict(long key, byte[] chunk) {
+        if (this.cachedKey == key) {
+            this.cachedChunk = null;
+        }
+
+        long[] bits = null;
+        for (int local = 0; local < CHUNK_CELLS; local++) {
+            int cell = chunk[local];
+            if ((cell & (CellGrid.REVEALED | CellGrid.FLAGGED)) == 0) {
+                continue;
+            }
+            if (bits == null) {
+                bits = new long[128];
+            }
+            if ((cell & CellGrid.REVEALED) != 0) {
+                bits[local >>> 6] |= 1L << local;
+            }
+            if ((cell & CellGrid.FLAGGED) != 0) {
+                bits[64 + (local >>> 6)] |= 1L << local;
+            }
+        }
+
+        if (bits != null) {
+            this.compact.put(key, bits);
+        }
+    }
+
+    // return the GameCharset value for the cell
+    public char getDisplayChar(int row, int col) {
+        int cell = this.peek(row, col);
+        if ((cell & CellGrid.FLAGGED) != 0) {
+            return GameCharset.FLAG.getDisplayChar();
+        }
+        else if ((cell & CellGrid.REVEALED) == 0) {
+            return GameCharset.BLANK.getDisplayChar();
+        }
+        else if ((cell & CellGrid.MINE) != 0) {
+            return GameCharset.MINE.getDisplayChar();
+        }
+        else if ((cell & CellGrid.NEIGHBOR_MASK) == 0) {
+            return GameCharset.BLANK.getDisplayChar();
+        }
+        else {
+            return (char) ('0' + (cell & CellGrid.NEIGHBOR_MASK));
+        }
+    }
+
+    // the packed cell (see CellGrid), without generating anything: a cell of a
+    // chunk that was never touched reads as covered
+    int getCell(int row, int col) {
+        return this.peek(row, col);
+    }
+
+    public boolean getRevealed(int row, int col) {
+        return (this.peek(row, col) & CellGrid.REVEALED) != 0;
+    }
+
+    public boolean getFlagged(int row, int col) {
+        return (this.peek(row, col) & CellGrid.FLAGGED) != 0;
+    }
+
+    // print out a window of the board for debug purposes
+    public void drawBoard(int rowFrom, int colFrom, int rows, int cols) {
+        StringBuilder out = new StringBuilder();
+        for (int row = rowFrom; row < rowFrom + rows; row++) {
+            for (int col = colFrom; col < colFrom + cols; col++) {
+                int cell = this.peek(row, col);
+                if ((cell & CellGrid.REVEALED) == 0 || (cell & CellGrid.MINE) != 0) {
+                    out.append(this.getDisplayChar(row, col));
+                } else {
+                    out.append(cell & CellGrid.NEIGHBOR_MASK);
+                }
+                out.append(' ');
+            }
+            out.append('\n');
+        }
+        System.out.print(out);
+    }
+
+    // left clicking on a cell will reveal it
+    // the first click fixes the safe opening, nothing is generated before it
+    public void leftClick(int row, int col) {
+        if (!this.started) {
+            this.started = true;
+            this.safeRow = row;
+            this.safeCol = col;
+        }
+
+        if (!this.getRevealed(row, col)) {
+            this.mineRevealed = false;
+            this.queueReveal(row, col);
+            this.drainReveals();
+            this.updateState();
+        }
+    }
+
+    // right clicking on a cell with toggle the flag, or flood reveal if enough
+    // neighboring cells are flagged
+    public void rightClick(int row, int col) {
+        if (!this.started) {
+            return;
+        }
+
+        byte[] chunk = this.chunkFor(row, col);
+        int local = localIndex(row, col);
+        int cell = chunk[local];
+
+        // if the cell isn't revealed, flag it
+        if ((cell & CellGrid.REVEALED) == 0) {
+            chunk[local] = (byte) (cell ^ CellGrid.FLAGGED);
+        }
+        // if the cell is revealed, and it's touching as many flags as its val,
+        // reveal all touching cells
+        else if ((cell & CellGrid.MINE) == 0 && (cell & CellGrid.NEIGHBOR_MASK) > 0) {
+            int neighborFlags = 0;
+            for (int r = row - 1; r <= row + 1; r++) {
+                for (int c = col - 1; c <= col + 1; c++) {
+                    if ((this.peek(r, c) & CellGrid.FLAGGED) != 0) {
+                        neighborFlags++;
+                    }
+                }
+            }
+
+            if ((cell & CellGrid.NEIGHBOR_MASK) == neighborFlags) {
+                this.mineRevealed = false;
+                for (int r = row - 1; r <= row + 1; r++) {
+                    for (int c = col - 1; c <= col + 1; c++) {
+                        this.queueReveal(r, c);
+                    }
+                }
+                this.drainReveals();
+                this.updateState();
+            }
+        }
+    }
+
+    // reveal the cell and push it on the work stack
+    // the cell is revealed as it is queued, so it can never be queued twice
+    private void queueReveal(int row, int col) {
+        byte[] chunk = this.chunkFor(row, col);
+        int local = localIndex(row, col);
+        int cell = chunk[local];
+
+        // stop if the cell is flagged or revealed
+        if ((cell & (CellGrid.FLAGGED | CellGrid.REVEALED)) != 0) {
+            return;
+        }
+
+        chunk[local] = (byte) (cell | CellGrid.REVEALED);
+        if ((cell & CellGrid.MINE) != 0) {
+            this.mineRevealed = true;
+        }
+        this.cellsUncovered++;
+        this.work.push(row);
+        this.work.push(col);
+    }
+
+    // pop revealed cells off the work stack until it is empty
+    // every cell that was empty queues its neighbors, across chunk borders
+    private void drainReveals() {
+        while (!this.work.isEmpty()) {
+            int col = this.work.pop();
+            int row = this.work.pop();
+            int cell = this.chunkFor(row, col)[localIndex(row, col)];
+
+            // if cell was empty, reveal its neighbors
+            if ((cell & (CellGrid.MINE | CellGrid.NEIGHBOR_MASK)) == 0) {
+                for (int r = row - 1; r <= row + 1; r++) {
+                    for (int c = col - 1; c <= col + 1; c++) {
+                        this.queueReveal(r, c);
+                    }
+                }
+            }
+        }
+    }
+
+    // after uncovering cells, check if the player has lost
+    private void updateState() {
+        if (this.mineRevealed) {
+            this.state = State.LOST;
+        }
+    }
+}
@@ -2,8 +2,11 @@ package src;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JSpinner;
 import javax.swing.SpinnerNumberModel;
@@ -11,9 +14,11 @@ import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
 import java.awt.BorderLayout;
+import java.awt.GraphicsEnvironment;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.IOException;
 
 public class Coffeesweeper implements ActionListener {
     private JFrame frame;
@@ -22,15 +27,20 @@ public class Coffeesweeper implements ActionListener {
     private JSpinner heightJSpinner;
     private JSpinner widthJSpinner;
     private JSpinner nMinesJSpinner;
+    private JCheckBox safeOpeningJCheckBox;
+    private JCheckBox noGuessJCheckBox;
+
+    // the most recent game, its window is reused for a new game of the same size
+    private Game game;
 
     public Coffeesweeper() {
         frame = new JFrame();
         panel = new JPanel();
 
         JLabel heightJLabel = new JLabel("Height: ");
-        this.heightJSpinner = new JSpinner(new SpinnerNumberModel(10, 10, 100, 1));
+        this.heightJSpinner = new JSpinner(new SpinnerNumberModel(10, 10, 10000, 1));
         JLabel widthJLabel = new JLabel("Width: ");
-        this.widthJSpinner = new JSpinner(new SpinnerNumberModel(10, 10, 100, 1));
+        this.widthJSpinner = new JSpinner(new SpinnerNumberModel(10, 10, 10000, 1));
 
         // maximum number of mines is dynamic: 1 fewer than the number of cells
         SpinnerNumberModel minesModel = new SpinnerNumberModel(10, 10, (int) heightJSpinner.getValue() * (int) widthJSpinner.getValue() - 1, 1);
@@ -51,14 +61,25 @@ public class Coffeesweeper implements ActionListener {
             }
         };
 
+        // keep the first click's neighbors free of mines as well
+        JLabel safeOpeningJLabel = new JLabel("Safe opening: ");
+        this.safeOpeningJCheckBox = new JCheckBox();
+
+        // only generate boards that can be solved by logic alone
+        JLabel noGuessJLabel = new JLabel("No guessing: ");
+        this.noGuessJCheckBox = new JCheckBox();
+
         heightJSpinner.addChangeListener(listener);
         widthJSpinner.addChangeListener(listener);
 
         JButton button = new JButton("New Game");
         button.addActionListener(this);
 
+        JButton loadButton = new JButton("Load Game");
+        loadButton.addActionListener(e -> this.load());
+
         panel.setBorder(BorderFactory.createEmptyBorder(30, 30, 10, 30));
-        panel.setLayout(new GridLayout(4, 2));
+        panel.setLayout(new GridLayout(6, 2));
         // row 1 : height
         panel.add(heightJLabel);
         panel.add(heightJSpinner);
@@ -68,8 +89,15 @@ public class Coffeesweeper implements ActionListener {
         // row 3 : # of mines
         panel.add(nMinesJLabel);
         panel.add(nMinesJSpinner);
-        // row 4 : new game
+        // row 4 : safe opening
+        panel.add(safeOpeningJLabel);
+        panel.add(safeOpeningJCheckBox);
+        // row 5 : no guessing
+        panel.add(noGuessJLabel);
+        panel.add(noGuessJCheckBox);
+        // row 6 : new game, load game
         panel.add(button);
+        panel.add(loadButton);
 
         frame.add(panel, BorderLayout.CENTER);
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -78,15 +106,49 @@ public class Coffeesweeper implements ActionListener {
         frame.setVisible(true);
     }
 
-    // when new game is clicked, initialize a new game object
+    // when new game is clicked, restart the last game if it has the same size,
+    // otherwise initialize a new game object
     public void actionPerformed(ActionEvent e) {
-        new Game(
-                (int) heightJSpinner.getValue(),
-                (int) widthJSpinner.getValue(),
-                (int) nMinesJSpinner.getValue());
+        int height = (int) heightJSpinner.getValue();
+        int width = (int) widthJSpinner.getValue();
+        int nMines = (int) nMinesJSpinner.getValue();
+        boolean safeOpening = safeOpeningJCheckBox.isSelected();
+        boolean noGuess = noGuessJCheckBox.isSelected();
+
+        if (this.game != null && this.game.canRestart(height, width)) {
+            this.game.restart(nMines, safeOpening, noGuess);
+        } else {
+            this.replaceGame(new Game(height, width, nMines, safeOpening, noGuess));
+        }
+    }
+
+    // track a new game, releasing the window of the last one if it was closed
+    private void replaceGame(Game game) {
+        if (this.game != null && !this.game.isVisible()) {
+            this.game.dispose();
+        }
+        this.game = game;
+    }
+
+    // resume a game from a file picked by the user
+    private void load() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            this.replaceGame(new Game(SaveFile.load(chooser.getSelectedFile().toPath())));
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(frame, "Could not load the game: " + e.getMessage());
+        }
     }
 
-    public static void main(String[] args) {
+    // without a display the game is played in the terminal instead
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (GraphicsEnvironment.isHeadless()) {
+            TerminalGame.main(args);
+            return;
+        }
         new Coffeesweeper();
     }
 }
\ No newline at end of file
@@ -0,0 +1,192 @@
+package src;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+// a concurrent board lets many players (or bots) play the same board at once,
+// from any number of threads
+//
+// every cell transition is a compare-and-set on the cell's packed byte, so each
+// cell is revealed by exactly one thread: overlapping floods split the region
+// between them without counting a cell twice, and there are no locks to
+// deadlock on. reveals are counted in LongAdders, the thread whose count reaches
+// the number of safe cells ends the game. the first end of the game (a mine or
+// the last safe cell) wins the race and is final.
+//
+// unlike Board, it has no listeners: readers poll the cells
+public class ConcurrentBoard {
+    private final int height;
+    private final int width;
+    private final int nMines;
+    private final Topology topology;
+    private final CellGrid cells;
+
+    private final LongAdder safeRevealed = new LongAdder();
+    private final LongAdder minesRevealed = new LongAdder();
+    private final AtomicReference<State> state = new AtomicReference<>(State.IN_PROGRESS);
+
+    // every thread floods with its own reusable work stack and neighbor buffer
+    private static final ThreadLocal<IntStack> WORK = ThreadLocal.withInitial(IntStack::new);
+    private static final ThreadLocal<int[]> NEIGHBORS = ThreadLocal
+            .withInitial(() -> new int[Topology.MAX_NEIGHBORS]);
+
+    public ConcurrentBoard(int height, int width, int nMines, int firstRow, int firstCol, long seed,
+            boolean safeOpening) {
+        this(new Board(height, width, nMines, firstRow, firstCol, seed, safeOpening));
+    }
+
+    // take over the grid of a board that hasn't been played yet (the board must
+    // not be used afterwards)
+    ConcurrentBoard(Board board) {
+        if (board.getCellsUncovered() != 0) {
+            throw new IllegalArgumentException("Only a board that hasn't been played can be shared.");
+        }
+        this.height = board.getHeight();
+        this.width = board.getWidth();
+        this.nMines = board.getMines();
+        this.topology = board.getTopology();
+        this.cells = board.getCells();
+    }
+
+    // reveal the cell, flooding from it if it is empty, and return the number of
+    // cells this call revealed (0 if the game is over or another thread got
+    // there first)
+    public int reveal(int row, int col) {
+        this.checkCell(row, col);
+        if (this.state.get() != State.IN_PROGRESS) {
+            return 0;
+        }
+
+        IntStack work = WORK.get();
+        work.clear();
+        int revealed = this.queueReveal(this.cells.indexOf(row, col), work);
+        revealed += this.drainReveals(work, NEIGHBORS.get());
+        return revealed;
+    }
+
+    // flag or unflag a cell that isn't revealed, return false if it is revealed
+    // or the game is over
+    public boolean toggleFlag(int row, int col) {
+        this.checkCell(row, col);
+        return this.state.get() == State.IN_PROGRESS && this.cells.tryToggleFlag(this.cells.indexOf(row, col));
+    }
+
+    // reveal every neighbor of a revealed number that touches as many flags as
+    // its number, return the number of cells this call revealed
+    public int chord(int row, int col) {
+        this.checkCell(row, col);
+        int cell = this.cells.getVolatile(this.cells.indexOf(row, col));
+        int neighborMines = cell & CellGrid.NEIGHBOR_MASK;
+        if (this.state.get() != State.IN_PROGRESS || (cell & CellGrid.REVEALED) == 0
+                || (cell & CellGrid.MINE) != 0 || neighborMines == 0) {
+            return 0;
+        }
+
+        int[] neighbors = NEIGHBORS.get();
+        int n = this.topology.neighbors(this.cells.indexOf(row, col), neighbors);
+        int neighborFlags = 0;
+        for (int i = 0; i < n; i++) {
+            if ((this.cells.getVolatile(neighbors[i]) & CellGrid.FLAGGED) != 0) {
+                neighborFlags++;
+            }
+        }
+        if (neighborFlags != neighborMines) {
+            return 0;
+        }
+
+        IntStack work = WORK.get();
+        work.clear();
+        int revealed = 0;
+        for (int i = 0; i < n; i++) {
+            revealed += this.queueReveal(neighbors[i], work);
+        }
+        revealed += this.drainReveals(work, neighbors);
+        return revealed;
+    }
+
+    // return game state: WON, LOST, or IN_PROGRESS
+    public State getState() {
+        return this.state.get();
+    }
+
+    // cells revealed by play so far (exact once no thread is playing)
+    public int getCellsUncovered() {
+        return (int) (this.safeRevealed.sum() + this.minesRevealed.sum());
+    }
+
+    public boolean getRevealed(int index) {
+        return (this.cells.getVolatile(index) & CellGrid.REVEALED) != 0;
+    }
+
+    public boolean getFlagged(int index) {
+        return (this.cells.getVolatile(index) & CellGrid.FLAGGED) != 0;
+    }
+
+    public boolean getMine(int index) {
+        return (this.cells.getVolatile(index) & CellGrid.MINE) != 0;
+    }
+
+    public int getNeighborMines(int index) {
+        return this.cells.getVolatile(index) & CellGrid.NEIGHBOR_MASK;
+    }
+
+    public int getMines() {
+        return this.nMines;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    private void checkCell(int row, int col) {
+        if (row < 0 || row >= this.height || col < 0 || col >= this.width) {
+            throw new IllegalArgumentException("Attempted to fetch a cell that doesn't exist.");
+        }
+    }
+
+    // reveal the cell if no thread has yet and push it on the work stack,
+    // return 1 if this thread revealed it
+    private int queueReveal(int index, IntStack work) {
+        int before = this.cells.tryReveal(index);
+        if (before < 0) {
+            return 0;
+        }
+
+        if ((before & CellGrid.MINE) != 0) {
+            this.minesRevealed.increment();
+            this.state.compareAndSet(State.IN_PROGRESS, State.LOST);
+        } else {
+            this.safeRevealed.increment();
+            work.push(index);
+        }
+        return 1;
+    }
+
+    // pop revealed cells off the work stack until it is empty, every empty cell
+    // queues its neighbors, then check for a win
+    private int drainReveals(IntStack work, int[] neighbors) {
+        int revealed = 0;
+        while (!work.isEmpty()) {
+            int index = work.pop();
+            if ((this.cells.getVolatile(index) & CellGrid.NEIGHBOR_MASK) != 0) {
+                continue;
+            }
+
+            int n = this.topology.neighbors(index, neighbors);
+            for (int i = 0; i < n; i++) {
+                revealed += this.queueReveal(neighbors[i], work);
+            }
+        }
+
+        // the adder is incremented before it is summed, so whichever thread
+        // reveals the last safe cell sees the full count
+        if (this.safeRevealed.sum() == (long) this.height * this.width - this.nMines) {
+            this.state.compareAndSet(State.IN_PROGRESS, State.WON);
+        }
+        return revealed;
+    }
+}
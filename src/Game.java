@@ -1,94 +1,441 @@
 package src;
 
 import java.awt.BorderLayout;
+import java.awt.Cursor;
 import java.awt.Dimension;
-import java.awt.Font;
-import java.awt.GridLayout;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
+import java.awt.Toolkit;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.BorderFactory;
-import javax.swing.JButton;
+import javax.swing.JCheckBoxMenuItem;
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
+import javax.swing.JMenu;
+import javax.swing.JMenuBar;
+import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
-import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
 
 public class Game {
+    // searches for no-guess boards away from the EDT, the thread exits when idle
+    private static final ThreadPoolExecutor GENERATOR = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "board-generator");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    static {
+        GENERATOR.allowCoreThreadTimeOut(true);
+    }
+
     private final JFrame frame;
-    private final JPanel panel;
+    private final BoardView view;
 
     private final int height;
     private final int width;
-    private final int nMines;
+    private int nMines;
+    private boolean safeOpening;
+    private boolean noGuess;
 
     private Board board;
     private boolean started = false;
+    // counts the boards asked for, a no-guess board that arrives after a newer
+    // one was asked for (or the game was restarted) is dropped
+    private int generation;
     private long startTime;
+    // clicks played in this game, kept with its result in the stats store
+    private int clicks;
+    // records the game if -Dcoffeesweeper.journal=<directory> is set
+    private ActionJournal journal;
+    // shades covered cells by their mine probability while showHints is set
+    private boolean showHints = false;
+    private HintOverlay hints;
+
+    // listens for the first click, which creates the board
+    private final MouseAdapter firstClickAdapter;
+    // plays the board once the game has started
+    private MouseAdapter playAdapter;
 
     // default values: 10x10 game with 10 mines
     Game() {
-        this(10, 10, 10);
+        this(10, 10, 10, false, false);
     }
 
-    Game(int height, int width, int nMines) {
+    // noGuess: generate a board that can be solved without guessing (implies a
+    // safe opening)
+    Game(int height, int width, int nMines, boolean safeOpening, boolean noGuess) {
         this.frame = new JFrame();
-        this.panel = new JPanel();
+        this.view = new BoardView(height, width, initialCellSize(height, width));
 
         this.height = height;
         this.width = width;
         this.nMines = nMines;
+        this.safeOpening = safeOpening;
+        this.noGuess = noGuess;
 
-        this.panel.setBorder(BorderFactory.createEmptyBorder(50, 50, 50, 50));
-        this.panel.setLayout(new GridLayout(height, width));
-
-        // init dummy buttons because the game doesn't exist until one is clicked
-        for (int row = 0; row < height; row++) {
-            for (int col = 0; col < width; col++) {
-                JButton button = new JButton(Character.toString(GameCharset.BLANK.getDisplayChar()));
-                final int r = row, c = col;
-                button.addActionListener(new ActionListener() {
-                    @Override
-                    public void actionPerformed(ActionEvent e) {
-                        if (!Game.this.started) {
-                            Game.this.started = true;
-                            Game.this.startGame(r, c);
-                        }
-                    }
-                });
-                button.setPreferredSize(new Dimension(50, 50));
-                button.setFont(new Font("Arial", Font.PLAIN, 20));
-                panel.add(button);
+        this.view.setBorder(BorderFactory.createEmptyBorder(50, 50, 50, 50));
+
+        // the view paints covered cells until the game exists, which happens when
+        // one is clicked
+        this.firstClickAdapter = new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = Game.this.view.cellAt(e.getX(), e.getY());
+                if (e.getButton() == MouseEvent.BUTTON1 && index >= 0 && !Game.this.started) {
+                    Game.this.started = true;
+                    Game.this.startGame(index / width, index % width);
+                }
             }
-        }
+        };
+        this.view.addMouseListener(this.firstClickAdapter);
+
+        // only the part of the board inside the viewport is ever painted
+        JScrollPane scrollPane = new JScrollPane(this.view);
+        Dimension screen = Toolkit.getDefaultToolkit().getScreenSize();
+        Dimension preferred = this.view.getPreferredSize();
+        scrollPane.getViewport().setPreferredSize(new Dimension(
+                Math.min(preferred.width, screen.width * 4 / 5),
+                Math.min(preferred.height, screen.height * 4 / 5)));
+
+        // game menu: save the game in progress
+        JMenuItem saveItem = new JMenuItem("Save...");
+        saveItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_S, InputEvent.CTRL_DOWN_MASK));
+        saveItem.addActionListener(e -> this.save());
+        // undo and redo every reveal and flag, a losing click included
+        JMenuItem undoItem = new JMenuItem("Undo");
+        undoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK));
+        undoItem.addActionListener(e -> this.undo());
+        JMenuItem redoItem = new JMenuItem("Redo");
+        redoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK));
+        redoItem.addActionListener(e -> this.redo());
+        // hints are worked out in the background, they never hold up a click
+        JCheckBoxMenuItem hintsItem = new JCheckBoxMenuItem("Show Hints");
+        hintsItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_H, InputEvent.CTRL_DOWN_MASK));
+        hintsItem.addActionListener(e -> this.setShowHints(hintsItem.isSelected()));
+        JMenu gameMenu = new JMenu("Game");
+        gameMenu.add(saveItem);
+        gameMenu.addSeparator();
+        gameMenu.add(undoItem);
+        gameMenu.add(redoItem);
+        gameMenu.addSeparator();
+        gameMenu.add(hintsItem);
+        JMenuBar menuBar = new JMenuBar();
+        menuBar.add(gameMenu);
+        frame.setJMenuBar(menuBar);
 
-        frame.add(panel, BorderLayout.CENTER);
-        frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        frame.add(scrollPane, BorderLayout.CENTER);
+        // the window is only hidden, so that a new game of the same size can reuse
+        // it (see restart)
+        frame.setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE);
+        // a game closed before it is over still has records to write
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                Game.this.closeJournal();
+            }
+        });
         frame.setTitle(String.format("Game %dx%d", height, width));
         frame.pack();
         frame.setVisible(true);
 
     }
 
+    // resume a saved game where it was left off
+    Game(SaveFile.SavedGame saved) {
+        this(saved.getBoard().getHeight(), saved.getBoard().getWidth(), saved.getBoard().getMines(), false, false);
+        this.started = true;
+        this.attachBoard(saved.getBoard());
+        this.startTime = System.nanoTime() - saved.getElapsedNanos();
+        // a finished game was saved, end it right away
+        this.useState(this.board.getState());
+    }
+
+    // cells are 50px like the old buttons, smaller if that won't fit on screen,
+    // but never so small that they can't be clicked (bigger boards scroll)
+    private static int initialCellSize(int height, int width) {
+        Dimension screen = Toolkit.getDefaultToolkit().getScreenSize();
+        int fit = Math.min((screen.width * 4 / 5 - 100) / width, (screen.height * 4 / 5 - 100) / height);
+        return Math.max(16, Math.min(50, fit));
+    }
+
+    // whether a new game of this size can be played in this window
+    public boolean canRestart(int height, int width) {
+        return this.frame.isDisplayable() && height == this.height && width == this.width;
+    }
+
+    // start a new game in the same window: the view goes back to covered cells
+    // and the board's arrays are reused by the next first click
+    public void restart(int nMines, boolean safeOpening, boolean noGuess) {
+        this.closeJournal();
+        this.closeHints();
+        this.nMines = nMines;
+        this.safeOpening = safeOpening;
+        this.noGuess = noGuess;
+        this.started = false;
+        this.generation++;
+        this.view.setCursor(null);
+        // the previous board stays hidden until the next first click reuses it,
+        // nothing may undo, redo or save it in the meantime
+        if (this.board != null) {
+            this.board.setUndoEnabled(false);
+        }
+
+        if (this.playAdapter != null) {
+            this.view.removeMouseListener(this.playAdapter);
+            this.playAdapter = null;
+        }
+        this.view.removeMouseListener(this.firstClickAdapter);
+        this.view.addMouseListener(this.firstClickAdapter);
+        this.view.setRevealAll(false);
+        this.view.setBoard(null);
+
+        this.frame.setVisible(true);
+        this.frame.toFront();
+    }
+
+    // close the window for good
+    public void dispose() {
+        this.generation++;
+        this.closeJournal();
+        this.closeHints();
+        this.frame.dispose();
+    }
+
+    // whether the window is on screen
+    public boolean isVisible() {
+        return this.frame.isVisible();
+    }
+
     private void startGame(int firstRow, int firstCol) {
-        this.board = new Board(this.height, this.width, this.nMines, firstRow, firstCol);
-        this.panel.removeAll();
-
-        for (int row = 0; row < this.height; row++) {
-            for (int col = 0; col < this.width; col++) {
-                JButton button = new JButton(Character.toString(GameCharset.BLANK.getDisplayChar()));
-                this.board.setButton(button, row, col);
-                button.addMouseListener(MouseListenerFactory.createMouseAdapter(this::useState, this.board, row, col));
-                panel.add(button);
+        long seed = new SplittableRandom().nextLong();
+        if (this.noGuess) {
+            this.generateNoGuess(firstRow, firstCol, seed);
+            return;
+        }
+
+        Board board;
+        if (this.board != null) {
+            // a restart: regenerate the mines in the previous board's arrays
+            board = this.board;
+            board.reset(this.nMines, firstRow, firstCol, seed, this.safeOpening);
+        } else {
+            board = new Board(this.height, this.width, this.nMines, firstRow, firstCol, seed, this.safeOpening);
+        }
+        this.play(board, firstRow, firstCol);
+    }
+
+    // search for a no-guess board in the background, for up to the generator's
+    // budget, and play it once it is found. the window stays responsive meanwhile,
+    // with nothing to play: the previous board is let go, as the new one has
+    // arrays of its own
+    private void generateNoGuess(int firstRow, int firstCol, long seed) {
+        if (this.board != null) {
+            this.board.removeBoardListener(this.view);
+            this.board = null;
+        }
+        this.view.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+
+        int generation = ++this.generation;
+        int nMines = this.nMines;
+        GENERATOR.execute(() -> {
+            try {
+                NoGuessGenerator.Result result = NoGuessGenerator.generate(this.height, this.width, nMines,
+                        firstRow, firstCol, seed);
+                SwingUtilities.invokeLater(() -> this.generated(generation, result, firstRow, firstCol));
+            } catch (RuntimeException e) {
+                SwingUtilities.invokeLater(() -> {
+                    if (generation == this.generation) {
+                        // let the next first click try again
+                        this.view.setCursor(null);
+                        this.started = false;
+                        JOptionPane.showMessageDialog(this.frame, "Could not generate the board: " + e.getMessage());
+                    }
+                });
             }
+        });
+    }
+
+    // play a no-guess board found in the background, unless it is no longer
+    // wanted, and tell the player if the search ran out of time
+    private void generated(int generation, NoGuessGenerator.Result result, int firstRow, int firstCol) {
+        if (generation != this.generation) {
+            return;
+        }
+        this.view.setCursor(null);
+        this.play(result.getBoard(), firstRow, firstCol);
+        if (!result.isNoGuess() && this.board.getState() == State.IN_PROGRESS) {
+            JOptionPane.showMessageDialog(this.frame,
+                    "No board without guessing was found in time, this one may need a guess.");
         }
+    }
+
+    // start playing a new board from its first click
+    private void play(Board board, int firstRow, int firstCol) {
+        this.journal = this.openJournal(board);
+        this.attachBoard(board);
 
         this.startTime = System.nanoTime();
+        this.clicks = 1;
+        if (this.journal != null) {
+            this.journal.record(firstRow * this.width + firstCol, ActionJournal.LEFT_CLICK);
+        }
         this.board.leftClick(firstRow, firstCol);
         // check the state to ensure that it wasn't an instant win
         this.useState(this.board.getState());
+    }
+
+    // show the board in the view and replace the first click listener with the
+    // one that plays it
+    private void attachBoard(Board board) {
+        if (this.board != board) {
+            if (this.board != null) {
+                this.board.removeBoardListener(this.view);
+            }
+            this.board = board;
+            this.board.addBoardListener(this.view);
+        }
+        this.board.setUndoEnabled(true);
+        this.view.setBoard(this.board);
 
-        this.panel.revalidate();
-        this.panel.repaint();
+        this.view.removeMouseListener(this.firstClickAdapter);
+        this.attachPlayAdapter();
+    }
+
+    // (re)create the listener that plays the board, with the current hints
+    private void attachPlayAdapter() {
+        this.closeHints();
+        if (this.showHints && this.board.getState() == State.IN_PROGRESS) {
+            this.hints = new HintOverlay(this.board, this.view);
+        }
+
+        if (this.playAdapter != null) {
+            this.view.removeMouseListener(this.playAdapter);
+        }
+        this.playAdapter = MouseListenerFactory.createMouseAdapter(this::clicked, this.board, this.view,
+                this.journal, this.hints);
+        this.view.addMouseListener(this.playAdapter);
+    }
+
+    // turn the hint overlay on or off, for this game and the next ones
+    private void setShowHints(boolean showHints) {
+        this.showHints = showHints;
+        if (this.playAdapter != null) {
+            this.attachPlayAdapter();
+        }
+    }
+
+    private void closeHints() {
+        if (this.hints != null) {
+            this.hints.close();
+            this.hints = null;
+        }
+    }
+
+    // start a journal of the new game in the journal directory, if one is set
+    // (no-guess boards always have a safe opening)
+    private ActionJournal openJournal(Board board) {
+        String directory = System.getProperty("coffeesweeper.journal");
+        if (directory == null) {
+            return null;
+        }
+        Path path = Paths.get(directory, String.format("game-%d.csj", System.currentTimeMillis()));
+        try {
+            return new ActionJournal(path, this.height, this.width, this.nMines, board.getSeed(),
+                    this.safeOpening || this.noGuess);
+        } catch (IOException e) {
+            System.err.println("Could not start the action journal: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void closeJournal() {
+        if (this.journal != null) {
+            this.journal.close();
+            this.journal = null;
+        }
+    }
+
+    // take back the last action
+    private void undo() {
+        if (this.started && this.board != null && this.board.canUndo()) {
+            if (this.journal != null) {
+                this.journal.record(0, ActionJournal.UNDO);
+            }
+            this.board.undo();
+        }
+    }
+
+    // play the last undone action again
+    private void redo() {
+        if (this.started && this.board != null && this.board.canRedo()) {
+            if (this.journal != null) {
+                this.journal.record(0, ActionJournal.REDO);
+            }
+            this.board.redo();
+            this.useState(this.board.getState());
+        }
+    }
+
+    // save the game in progress to a file picked by the user
+    private void save() {
+        if (!this.started || this.board == null || this.board.getState() != State.IN_PROGRESS) {
+            JOptionPane.showMessageDialog(this.frame, "There is no game in progress to save.");
+            return;
+        }
+
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(this.frame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            SaveFile.save(chooser.getSelectedFile().toPath(), this.board, System.nanoTime() - this.startTime);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this.frame, "Could not save the game: " + e.getMessage());
+        }
+    }
+
+    // called after every click of the play adapter
+    private void clicked(State state) {
+        this.clicks++;
+        this.useState(state);
+    }
+
+    // add the result of a finished game to the stats store, and describe how it
+    // compares with the earlier games of this board ("" without a store)
+    private String recordStats(State state, long nanos) {
+        StatsStore stats = StatsStore.shared();
+        if (stats == null) {
+            return "";
+        }
+        try {
+            stats.record(this.height, this.width, this.nMines,
+                    state == State.WON ? StatsStore.OUTCOME_WON : StatsStore.OUTCOME_LOST, nanos,
+                    this.board.getSeed(), this.clicks);
+            stats.flush();
+        } catch (IOException e) {
+            System.err.println("Could not record the game: " + e.getMessage());
+        }
+
+        long[] best = stats.getBestTimes(this.height, this.width, this.nMines, 1);
+        return String.format("%nBest time: %s, win rate %.1f%% over %d games.",
+                best.length > 0 ? String.format("%.2f seconds", best[0] / 1_000_000_000.0) : "none yet",
+                100 * stats.getWinRate(this.height, this.width, this.nMines),
+                stats.getGames(this.height, this.width, this.nMines));
     }
 
     public void useState(State state) {
@@ -97,20 +444,43 @@ public class Game {
             return;
         }
 
-        // otherwise...
-        // reveal the game board
-        for (int row = 0; row < this.height; row++) {
-            for (int col = 0; col < this.width; col++) {
-                this.board.getCell(row, col).Reveal();
-                this.board.revealButton(row, col);
+        // a losing click can be taken back
+        if (state == State.LOST && this.board.canUndo()) {
+            String[] options = { "Undo", "Give up" };
+            int choice = JOptionPane.showOptionDialog(this.frame, "You hit a mine! Undo the last move?", "Game over",
+                    JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE, null, options, options[0]);
+            if (choice == 0) {
+                this.undo();
+                return;
             }
         }
 
-        // show result dialog
-        JOptionPane.showMessageDialog(null, String.format("Game over! You %s in %.2f seconds!",
-                state == State.WON ? "won" : "lost", (double) (System.nanoTime() - this.startTime) / 1_000_000_000.0));
+        this.closeJournal();
+        this.closeHints();
+
+        GameEvents.GameOver event = new GameEvents.GameOver();
+        event.begin();
+        GameMetrics.get().gameOver(state == State.WON);
+
+        // otherwise...
+        // reveal the game board (only the visible part is painted)
+        this.view.setRevealAll(true);
+
+        if (event.shouldCommit()) {
+            event.height = this.height;
+            event.width = this.width;
+            event.won = state == State.WON;
+            event.cellsUncovered = this.board.getCellsUncovered();
+            event.commit();
+        }
+
+        // keep the result, then show it
+        long nanos = System.nanoTime() - this.startTime;
+        String stats = this.recordStats(state, nanos);
+        JOptionPane.showMessageDialog(null, String.format("Game over! You %s in %.2f seconds!%s",
+                state == State.WON ? "won" : "lost", (double) nanos / 1_000_000_000.0, stats));
 
-        // close the game
-        frame.dispose();
+        // close the game, the window is kept for the next game of this size
+        frame.setVisible(false);
     }
 }
@@ -0,0 +1,90 @@
+package src;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// JDK Flight Recorder events for the hot paths of the game engine
+// they cost next to nothing unless a recording is running, e.g.
+// java -XX:StartFlightRecording=filename=game.jfr src.Coffeesweeper
+public class GameEvents {
+    private GameEvents() {
+    }
+
+    @Name("coffeesweeper.BoardGenerated")
+    @Label("Board Generated")
+    @Category("Coffeesweeper")
+    @Description("Mine generation and neighbor counting for a new board")
+    static class BoardGenerated extends Event {
+        @Label("Height")
+        int height;
+        @Label("Width")
+        int width;
+        @Label("Mines")
+        int nMines;
+        @Label("Seed")
+        long seed;
+    }
+
+    @Name("coffeesweeper.FloodReveal")
+    @Label("Flood Reveal")
+    @Category("Coffeesweeper")
+    @Description("Reveal of a cell and every empty region connected to it")
+    static class FloodReveal extends Event {
+        @Label("Height")
+        int height;
+        @Label("Width")
+        int width;
+        @Label("Cells Revealed")
+        int cellsRevealed;
+        @Label("Region Size")
+        @Description("Cells visited by the flood, including the revealed or flagged cells on its edge")
+        int regionSize;
+    }
+
+    @Name("coffeesweeper.Chord")
+    @Label("Chord")
+    @Category("Coffeesweeper")
+    @Description("Right click on a revealed number that reveals its unflagged neighbors")
+    static class Chord extends Event {
+        @Label("Height")
+        int height;
+        @Label("Width")
+        int width;
+        @Label("Cells Revealed")
+        int cellsRevealed;
+        @Label("Region Size")
+        @Description("Cells visited by the flood, including the revealed or flagged cells on its edge")
+        int regionSize;
+    }
+
+    @Name("coffeesweeper.GameOver")
+    @Label("Game Over")
+    @Category("Coffeesweeper")
+    @Description("End of game handling in Game.useState")
+    static class GameOver extends Event {
+        @Label("Height")
+        int height;
+        @Label("Width")
+        int width;
+        @Label("Won")
+        boolean won;
+        @Label("Cells Uncovered")
+        int cellsUncovered;
+    }
+
+    @Name("coffeesweeper.ClickToPaint")
+    @Label("Click To Paint")
+    @Category("Coffeesweeper")
+    @Description("Latency from a mouse click on the board to the repaint showing its result")
+    static class ClickToPaint extends Event {
+        @Label("Height")
+        int height;
+        @Label("Width")
+        int width;
+        @Label("Cells Changed")
+        int cellsChanged;
+    }
+}
@@ -0,0 +1,148 @@
+package src;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// process wide counters and latency histograms for the game engine, exposed
+// over JMX (jconsole, VisualVM, ...) as coffeesweeper:type=GameMetrics
+public class GameMetrics implements GameMetricsMBean {
+    private static final GameMetrics INSTANCE = new GameMetrics();
+
+    private final LongAdder boardsGenerated = new LongAdder();
+    private final LongAdder floodReveals = new LongAdder();
+    private final LongAdder chords = new LongAdder();
+    private final LongAdder cellsRevealed = new LongAdder();
+    private final LongAdder gamesWon = new LongAdder();
+    private final LongAdder gamesLost = new LongAdder();
+    private final LongAdder clicks = new LongAdder();
+
+    private final LatencyHistogram boardGeneration = new LatencyHistogram();
+    private final LatencyHistogram floodReveal = new LatencyHistogram();
+    private final LatencyHistogram clickToPaint = new LatencyHistogram();
+
+    private volatile long resetNanos = System.nanoTime();
+
+    private GameMetrics() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                    new ObjectName("coffeesweeper:type=GameMetrics"));
+        } catch (JMException | SecurityException e) {
+            // the counters still work, they just aren't visible over JMX
+        }
+    }
+
+    public static GameMetrics get() {
+        return INSTANCE;
+    }
+
+    void boardGenerated(long nanos) {
+        this.boardsGenerated.increment();
+        this.boardGeneration.record(nanos);
+    }
+
+    // a flood reveal or a chord revealed cellsRevealed cells in nanos
+    void floodRevealed(boolean chord, int cellsRevealed, long nanos) {
+        (chord ? this.chords : this.floodReveals).increment();
+        this.cellsRevealed.add(cellsRevealed);
+        this.floodReveal.record(nanos);
+    }
+
+    void gameOver(boolean won) {
+        (won ? this.gamesWon : this.gamesLost).increment();
+    }
+
+    void clickPainted(long nanos) {
+        this.clicks.increment();
+        this.clickToPaint.record(nanos);
+    }
+
+    @Override
+    public long getBoardsGenerated() {
+        return this.boardsGenerated.sum();
+    }
+
+    // average since start (or the last reset)
+    @Override
+    public double getBoardsGeneratedPerSecond() {
+        double seconds = (System.nanoTime() - this.resetNanos) / 1_000_000_000.0;
+        return seconds > 0 ? this.boardsGenerated.sum() / seconds : 0;
+    }
+
+    @Override
+    public long getBoardGenerationP50Micros() {
+        return this.boardGeneration.percentile(50) / 1000;
+    }
+
+    @Override
+    public long getBoardGenerationP99Micros() {
+        return this.boardGeneration.percentile(99) / 1000;
+    }
+
+    @Override
+    public long getFloodReveals() {
+        return this.floodReveals.sum();
+    }
+
+    @Override
+    public long getChords() {
+        return this.chords.sum();
+    }
+
+    @Override
+    public long getCellsRevealed() {
+        return this.cellsRevealed.sum();
+    }
+
+    @Override
+    public long getFloodRevealP50Micros() {
+        return this.floodReveal.percentile(50) / 1000;
+    }
+
+    @Override
+    public long getFloodRevealP99Micros() {
+        return this.floodReveal.percentile(99) / 1000;
+    }
+
+    @Override
+    public long getGamesWon() {
+        return this.gamesWon.sum();
+    }
+
+    @Override
+    public long getGamesLost() {
+        return this.gamesLost.sum();
+    }
+
+    @Override
+    public long getClicks() {
+        return this.clicks.sum();
+    }
+
+    @Override
+    public long getClickToPaintP50Micros() {
+        return this.clickToPaint.percentile(50) / 1000;
+    }
+
+    @Override
+    public long getClickToPaintP99Micros() {
+        return this.clickToPaint.percentile(99) / 1000;
+    }
+
+    @Override
+    public void reset() {
+        this.boardsGenerated.reset();
+        this.floodReveals.reset();
+        this.chords.reset();
+        this.cellsRevealed.reset();
+        this.gamesWon.reset();
+        this.gamesLost.reset();
+        this.clicks.reset();
+        this.boardGeneration.reset();
+        this.floodReveal.reset();
+        this.clickToPaint.reset();
+        this.resetNanos = System.nanoTime();
+    }
+}
@@ -0,0 +1,35 @@
+package src;
+
+// JMX view of GameMetrics, under coffeesweeper:type=GameMetrics
+// latencies are in microseconds
+public interface GameMetricsMBean {
+    long getBoardsGenerated();
+
+    double getBoardsGeneratedPerSecond();
+
+    long getBoardGenerationP50Micros();
+
+    long getBoardGenerationP99Micros();
+
+    long getFloodReveals();
+
+    long getChords();
+
+    long getCellsRevealed();
+
+    long getFloodRevealP50Micros();
+
+    long getFloodRevealP99Micros();
+
+    long getGamesWon();
+
+    long getGamesLost();
+
+    long getClicks();
+
+    long getClickToPaintP50Micros();
+
+    long getClickToPaintP99Micros();
+
+    void reset();
+}
@@ -0,0 +1,338 @@
+package src;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// a game server hosts many independent games over a line protocol on a local
+// socket, one request and one response line at a time (requests may be
+// pipelined)
+//
+// NEW <height> <width> <mines> [safe]  -> OK <session>
+// REVEAL <session> <row> <col>         -> OK <state> <n> <index>:<value> ...
+// FLAG <session> <row> <col>           -> (same as REVEAL)
+// CHORD <session> <row> <col>          -> (same as REVEAL)
+// END <session>                        -> OK
+// anything that fails                  -> ERR <message>
+//
+// actions on a game that is over fail, and NEW fails while the boards of the
+// live sessions already hold MAX_LIVE_CELLS cells.
+//
+// responses to actions list only the cells the action changed, a value is the
+// number of a revealed cell (0-8), M for a revealed mine, F for a flag and . for
+// a covered cell. the mines are placed on the first REVEAL, like in Game.
+//
+// every connection is served by its own (virtual, when available) thread.
+// requests on the same session are serialized by the session's lock, requests
+// on different sessions never wait for each other. sessions that are idle for
+// too long are evicted.
+public class GameServer implements Closeable {
+    static final int DEFAULT_PORT = 7373;
+    static final long DEFAULT_IDLE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    // largest board a session may create
+    static final int MAX_CELLS = 1 << 24;
+    // most cells all live sessions may hold together, so that clients can't run
+    // the server out of memory
+    static final long MAX_LIVE_CELLS = 1L << 27;
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = newConnectionExecutor();
+    private final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "game-server-evictor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ConcurrentHashMap<Long, Session> sessions = new ConcurrentHashMap<>();
+    // open connections, closed with the server (blocked reads can't be interrupted)
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private final AtomicLong nextSession = new AtomicLong(1);
+    // cells of every live session, reserved by NEW and released when the
+    // session ends or is evicted
+    private final AtomicLong liveCells = new AtomicLong();
+    private final long idleNanos;
+    private volatile boolean running = true;
+
+    // one game, created by NEW and played by any connection that knows its id
+    private static class Session implements BoardListener {
+        // a ReentrantLock rather than synchronized: virtual threads blocked on a
+        // monitor pin their carrier thread
+        final ReentrantLock lock = new ReentrantLock();
+        final int height;
+        final int width;
+        final int nMines;
+        final boolean safeOpening;
+        // cells changed by the request being handled
+        final IntStack changed = new IntStack();
+        volatile long lastUsed = System.nanoTime();
+        Board board;
+
+        Session(int height, int width, int nMines, boolean safeOpening) {
+            this.height = height;
+            this.width = width;
+            this.nMines = nMines;
+            this.safeOpening = safeOpening;
+        }
+
+        @Override
+        public void boardChanged(Board board, int[] changed, int count) {
+            for (int i = 0; i < count; i++) {
+                this.changed.push(changed[i]);
+            }
+        }
+    }
+
+    // listen on the loopback interface (port 0 picks a free port)
+    GameServer(int port, long idleMillis) throws IOException {
+        this.serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+
+        long period = Math.max(1000, idleMillis / 4);
+        this.evictor.scheduleAtFixedRate(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+
+        Thread acceptor = new Thread(this::acceptConnections, "game-server-acceptor");
+        acceptor.start();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        long idleMillis = DEFAULT_IDLE_MILLIS;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--port" -> port = Integer.parseInt(args[i + 1]);
+                case "--idle-seconds" -> idleMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(args[i + 1]));
+                default -> {
+                    System.err.println("usage: GameServer [--port n] [--idle-seconds n]");
+                    System.exit(2);
+                }
+            }
+        }
+
+        GameServer server = new GameServer(port, idleMillis);
+        System.out.println("Coffeesweeper server listening on " + server.getPort());
+    }
+
+    // one virtual thread per connection when the runtime has them (Java 21+),
+    // otherwise a cached pool of platform threads
+    static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "game-server-connection");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public int getPort() {
+        return this.serverSocket.getLocalPort();
+    }
+
+    // number of live sessions
+    public int getSessions() {
+        return this.sessions.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.running = false;
+        this.serverSocket.close();
+        this.evictor.shutdownNow();
+        this.connections.shutdownNow();
+        for (Socket socket : this.sockets) {
+            socket.close();
+        }
+    }
+
+    private void acceptConnections() {
+        while (this.running) {
+            try {
+                Socket socket = this.serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                this.sockets.add(socket);
+                this.connections.execute(() -> this.serve(socket));
+            } catch (IOException e) {
+                if (this.running) {
+                    System.err.println("Game server could not accept a connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // answer the requests of one connection until it is closed
+    private void serve(Socket socket) {
+        try (socket;
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                Writer out = new BufferedWriter(
+                        new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII))) {
+            StringBuilder response = new StringBuilder();
+            String line;
+            while ((line = in.readLine()) != null) {
+                response.setLength(0);
+                this.handle(line, response);
+                response.append('\n');
+                out.append(response);
+                // pipelined requests are answered in one write
+                if (!in.ready()) {
+                    out.flush();
+                }
+            }
+        } catch (SocketException e) {
+            // the client went away
+        } catch (IOException e) {
+            System.err.println("Game server connection failed: " + e.getMessage());
+        } finally {
+            this.sockets.remove(socket);
+        }
+    }
+
+    // answer a single request line
+    void handle(String line, StringBuilder response) {
+        String[] args = line.trim().split("\\s+");
+        try {
+            switch (args[0].toUpperCase(Locale.ROOT)) {
+                case "NEW" -> this.newGame(args, response);
+                case "REVEAL", "FLAG", "CHORD" -> this.act(args, response);
+                case "END" -> {
+                    this.endSession(parseSession(args));
+                    response.append("OK");
+                }
+                default -> response.append("ERR unknown request ").append(args[0]);
+            }
+        } catch (IndexOutOfBoundsException e) {
+            response.setLength(0);
+            response.append("ERR missing arguments");
+        } catch (IllegalArgumentException e) {
+            response.setLength(0);
+            response.append("ERR ").append(e.getMessage());
+        }
+    }
+
+    private void newGame(String[] args, StringBuilder response) {
+        int height = Integer.parseInt(args[1]);
+        int width = Integer.parseInt(args[2]);
+        int nMines = Integer.parseInt(args[3]);
+        boolean safeOpening = args.length > 4 && args[4].equalsIgnoreCase("safe");
+        if (height <= 0 || width <= 0 || (long) height * width > MAX_CELLS) {
+            throw new IllegalArgumentException("board size out of range");
+        }
+        if (nMines < 0 || nMines >= height * width) {
+            throw new IllegalArgumentException("mine count out of range");
+        }
+
+        long cells = (long) height * width;
+        if (this.liveCells.addAndGet(cells) > MAX_LIVE_CELLS) {
+            this.liveCells.addAndGet(-cells);
+            throw new IllegalArgumentException("server is full");
+        }
+
+        long id = this.nextSession.getAndIncrement();
+        this.sessions.put(id, new Session(height, width, nMines, safeOpening));
+        response.append("OK ").append(id);
+    }
+
+    // drop a session and release its cells, once even if END and the evictor
+    // race for it
+    private void endSession(long id) {
+        Session session = this.sessions.remove(id);
+        if (session != null) {
+            this.liveCells.addAndGet(-(long) session.height * session.width);
+        }
+    }
+
+    private void act(String[] args, StringBuilder response) {
+        Session session = this.sessions.get(parseSession(args));
+        if (session == null) {
+            throw new IllegalArgumentException("no such session");
+        }
+        int row = Integer.parseInt(args[2]);
+        int col = Integer.parseInt(args[3]);
+        String verb = args[0].toUpperCase(Locale.ROOT);
+
+        session.lock.lock();
+        try {
+            session.lastUsed = System.nanoTime();
+            session.changed.clear();
+
+            Board board = session.board;
+            if (board == null) {
+                if (!verb.equals("REVEAL")) {
+                    throw new IllegalArgumentException("the game starts with a REVEAL");
+                }
+                if (row < 0 || row >= session.height || col < 0 || col >= session.width) {
+                    throw new IllegalArgumentException("cell out of range");
+                }
+                board = new Board(session.height, session.width, session.nMines, row, col,
+                        new SplittableRandom().nextLong(), session.safeOpening);
+                board.addBoardListener(session);
+                session.board = board;
+            } else if (board.getState() != State.IN_PROGRESS) {
+                // Board would go on playing a finished game
+                throw new IllegalArgumentException("the game is over");
+            }
+
+            switch (verb) {
+                case "REVEAL" -> board.leftClick(row, col);
+                case "FLAG" -> board.toggleFlag(row, col);
+                default -> board.chord(row, col);
+            }
+
+            response.append("OK ").append(board.getState()).append(' ').append(session.changed.size());
+            for (int i = 0; i < session.changed.size(); i++) {
+                int index = session.changed.get(i);
+                response.append(' ').append(index).append(':').append(valueOf(board, index));
+            }
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    // the value of a cell as a client may see it
+    private static char valueOf(Board board, int index) {
+        if (board.getFlagged(index)) {
+            return 'F';
+        } else if (!board.getRevealed(index)) {
+            return '.';
+        } else if (board.getMine(index)) {
+            return 'M';
+        } else {
+            return (char) ('0' + board.getNeighborMines(index));
+        }
+    }
+
+    private static long parseSession(String[] args) {
+        return Long.parseLong(args[1]);
+    }
+
+    // drop every session that hasn't been used within the idle timeout
+    private void evictIdle() {
+        long now = System.nanoTime();
+        for (Long id : this.sessions.keySet()) {
+            Session session = this.sessions.get(id);
+            if (session != null && now - session.lastUsed > this.idleNanos) {
+                this.endSession(id);
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package src;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+// a hint overlay works out the mine probability of every covered cell in the
+// background and hands the view a snapshot to shade the cells with
+//
+// the EDT only copies the visible values of the changed cells of every action
+// into a queue and starts an analysis, which feeds them to a solver of its own
+// (so every analysis is incremental), deduces, computes probabilities and posts
+// an immutable Snapshot back to the EDT. a click cancels the analysis in flight,
+// and the snapshot of an analysis that was overtaken by a newer one is dropped.
+// a cell that is covered again (an undo, or a flag taken back) makes the solver
+// forget its deductions, as they may not hold any more.
+//
+// nothing on the EDT depends on the size of the board: the first analysis reads
+// the board itself, and a snapshot only lists the frontier and the deduced
+// cells, every other covered cell has the interior probability.
+class HintOverlay implements BoardListener {
+    // one analysis thread for every overlay, it exits when idle so it never keeps
+    // the JVM alive
+    private static final ThreadPoolExecutor ANALYZER = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "hint-overlay");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    static {
+        ANALYZER.allowCoreThreadTimeOut(true);
+    }
+
+    private final Board board;
+    private final BoardView view;
+    private final int height;
+    private final int width;
+    private final int nMines;
+
+    // pairs of (flat index, visible value) of every action, oldest first
+    private final ConcurrentLinkedQueue<int[]> pending = new ConcurrentLinkedQueue<>();
+
+    // only touched on the EDT: the analysis in flight and its number
+    private Future<?> analysis;
+    private int generation;
+    private boolean closed;
+
+    // only touched by the analysis thread: the visible board and the solver
+    // following it (created by the first analysis), and the cells of a snapshot
+    private byte[] visible;
+    private Solver solver;
+    private final IntStack analyzed = new IntStack();
+
+    // start following a board, called on the EDT
+    HintOverlay(Board board, BoardView view) {
+        this.board = board;
+        this.view = view;
+        this.height = board.getHeight();
+        this.width = board.getWidth();
+        this.nMines = board.getMines();
+
+        board.addBoardListener(this);
+        this.schedule();
+    }
+
+    @Override
+    public void boardChanged(Board board, int[] changed, int count) {
+        int[] values = new int[count * 2];
+        for (int i = 0; i < count; i++) {
+            values[2 * i] = changed[i];
+            values[2 * i + 1] = Solver.visibleValue(board, changed[i]);
+        }
+        this.pending.add(values);
+        this.schedule();
+    }
+
+    // stop the analysis in flight, called when a click is about to change the
+    // board (the next analysis starts once it has)
+    public void cancel() {
+        if (this.analysis != null) {
+            this.analysis.cancel(true);
+            this.analysis = null;
+        }
+    }
+
+    // stop following the board and take the hints off the view
+    public void close() {
+        this.closed = true;
+        this.cancel();
+        this.board.removeBoardListener(this);
+        this.view.setHints(null);
+    }
+
+    private void schedule() {
+        this.cancel();
+        int generation = ++this.generation;
+        this.analysis = ANALYZER.submit(() -> {
+            // the future is dropped, a failure would go unnoticed
+            try {
+                this.analyze(generation);
+            } catch (RuntimeException e) {
+                System.err.println("Hint analysis failed: " + e);
+                e.printStackTrace();
+            }
+        });
+    }
+
+    // runs on the analysis thread
+    private void analyze(int generation) {
+        if (this.visible == null) {
+            // the board is read while the EDT may be playing it, but every change
+            // after the listener was added is also in pending, applied below
+            this.visible = new byte[this.height * this.width];
+            for (int index = 0; index < this.visible.length; index++) {
+                this.visible[index] = Solver.visibleValue(this.board, index);
+            }
+        }
+
+        int[] values;
+        while ((values = this.pending.poll()) != null) {
+            for (int i = 0; i < values.length; i += 2) {
+                byte value = (byte) values[i + 1];
+                this.visible[values[i]] = value;
+                if (this.solver != null) {
+                    this.solver.setVisible(values[i], value);
+                }
+            }
+        }
+
+        if (this.solver == null) {
+            this.solver = new Solver(this.height, this.width, this.nMines, this.visible);
+        }
+
+        Snapshot snapshot;
+        try {
+            this.solver.deduce();
+            this.solver.computeProbabilities();
+            snapshot = this.snapshot();
+        } catch (CancellationException e) {
+            // a newer analysis is queued and picks up from here
+            return;
+        }
+
+        SwingUtilities.invokeLater(() -> {
+            if (!this.closed && generation == this.generation) {
+                this.view.setHints(snapshot);
+            }
+        });
+    }
+
+    // collect every covered cell whose probability differs from the interior's,
+    // from the frontier and the deductions of the solver
+    private Snapshot snapshot() {
+        this.analyzed.clear();
+        this.solver.collectAnalyzed(this.analyzed);
+        int[] cells = Arrays.copyOf(this.analyzed.values(), this.analyzed.size());
+        Arrays.sort(cells);
+
+        float[] probability = new float[cells.length];
+        int count = 0;
+        for (int i = 0; i < cells.length; i++) {
+            int index = cells[i];
+            if ((i > 0 && index == cells[i - 1]) || this.visible[index] != Solver.UNKNOWN) {
+                continue;
+            }
+            cells[count] = index;
+            probability[count] = (float) this.solver.getProbability(index);
+            count++;
+        }
+        return new Snapshot(Arrays.copyOf(cells, count), Arrays.copyOf(probability, count),
+                (float) this.solver.getInteriorProbability());
+    }
+
+    // the mine probability of every covered cell at one point of the game: the
+    // cells next to revealed numbers are listed in index order, every other
+    // covered cell has the interior probability
+    static final class Snapshot {
+        private final int[] cells;
+        private final float[] probability;
+        private final float interiorProbability;
+
+        Snapshot(int[] cells, float[] probability, float interiorProbability) {
+            this.cells = cells;
+            this.probability = probability;
+            this.interiorProbability = interiorProbability;
+        }
+
+        // the probability that a covered cell is a mine, 0 for a certainly safe one
+        float getProbability(int index) {
+            int i = Arrays.binarySearch(this.cells, index);
+            return i >= 0 ? this.probability[i] : this.interiorProbability;
+        }
+    }
+}
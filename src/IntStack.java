@@ -0,0 +1,53 @@
+package src;
+
+import java.util.Arrays;
+
+// a growable stack of primitive ints, reused between calls to avoid boxing
+// and per-element allocation
+class IntStack {
+    private int[] values;
+    private int size;
+
+    IntStack() {
+        this(64);
+    }
+
+    IntStack(int initialCapacity) {
+        this.values = new int[Math.max(1, initialCapacity)];
+        this.size = 0;
+    }
+
+    public void push(int value) {
+        if (this.size == this.values.length) {
+            this.values = Arrays.copyOf(this.values, this.values.length * 2);
+        }
+        this.values[this.size++] = value;
+    }
+
+    public int pop() {
+        return this.values[--this.size];
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    // fetch the value at position i (0 is the bottom of the stack)
+    public int get(int i) {
+        return this.values[i];
+    }
+
+    // expose the backing array, only the first size() entries are valid
+    public int[] values() {
+        return this.values;
+    }
+
+    // drop every value but keep the backing array for the next use
+    public void clear() {
+        this.size = 0;
+    }
+}
@@ -0,0 +1,98 @@
+package src;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// a mine generator places mines on a grid from an explicit seed, so a board can
+// be reproduced from (height, width, nMines, first click, seed, safeOpening)
+//
+// mines are sampled with Floyd's algorithm over flat indices, using the grid
+// itself as the set of chosen cells, so each mine costs one random number no
+// matter how dense the board is. above 50% density the safe cells are sampled
+// instead and everything else is filled with mines.
+public class MineGenerator {
+    private MineGenerator() {
+    }
+
+    // place nMines mines in the grid, keeping the first click (and, if
+    // safeOpening is set, its neighbors in the topology) free of mines
+    // if there is no room for a safe opening, only the first click is kept safe
+    public static void generate(CellGrid grid, Topology topology, int nMines, int firstRow, int firstCol,
+            boolean safeOpening, long seed) {
+        int[] excluded = safeCells(grid, topology, nMines, firstRow, firstCol, safeOpening);
+        int candidates = grid.size() - excluded.length;
+
+        if (nMines < 0 || nMines > candidates) {
+            throw new IllegalArgumentException("Attempted to place more mines than there are free cells.");
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+
+        // sparse board: choose the mines
+        if (nMines <= candidates / 2) {
+            sample(grid, excluded, candidates, nMines, random, false);
+        }
+        // dense board: fill every candidate with a mine, then choose the safe cells
+        else {
+            for (int index = 0; index < grid.size(); index++) {
+                grid.setMine(index);
+            }
+            for (int index : excluded) {
+                grid.clearMine(index);
+            }
+            sample(grid, excluded, candidates, candidates - nMines, random, true);
+        }
+    }
+
+    // Floyd's algorithm: choose count distinct values out of [0, candidates)
+    // the grid's mine bit marks what was chosen (set when placing mines, cleared
+    // when placing safe cells)
+    private static void sample(CellGrid grid, int[] excluded, int candidates, int count, SplittableRandom random,
+            boolean chooseSafe) {
+        for (int j = candidates - count; j < candidates; j++) {
+            int index = toIndex(excluded, random.nextInt(j + 1));
+
+            // if the value was already chosen, j is guaranteed not to be
+            if (grid.getMine(index) != chooseSafe) {
+                index = toIndex(excluded, j);
+            }
+
+            if (chooseSafe) {
+                grid.clearMine(index);
+            } else {
+                grid.setMine(index);
+            }
+        }
+    }
+
+    // map a candidate number to a flat index by skipping over the excluded cells
+    private static int toIndex(int[] excluded, int candidate) {
+        int index = candidate;
+        for (int e : excluded) {
+            if (index >= e) {
+                index++;
+            }
+        }
+        return index;
+    }
+
+    // return the sorted flat indices of the cells that must not hold a mine
+    private static int[] safeCells(CellGrid grid, Topology topology, int nMines, int firstRow, int firstCol,
+            boolean safeOpening) {
+        int first = grid.indexOf(firstRow, firstCol);
+
+        if (safeOpening) {
+            int[] opening = new int[topology.maxNeighbors() + 1];
+            int n = topology.neighbors(first, opening);
+            opening[n] = first;
+            opening = Arrays.copyOf(opening, n + 1);
+
+            if (grid.size() - opening.length >= nMines) {
+                Arrays.sort(opening);
+                return opening;
+            }
+        }
+
+        return new int[] { first };
+    }
+}
@@ -5,15 +5,41 @@ import java.awt.event.MouseEvent;
 import java.util.function.Consumer;
 
 public class MouseListenerFactory {
-    public static MouseAdapter createMouseAdapter(Consumer<State> callbackState, Board board, int row, int col) {
+    public static MouseAdapter createMouseAdapter(Consumer<State> callbackState, Board board, BoardView view) {
+        return createMouseAdapter(callbackState, board, view, null, null);
+    }
+
+    // journal (optional) records every click before it is played, hints (optional)
+    // drop their analysis in flight, they analyze the board again once the click
+    // has changed it
+    public static MouseAdapter createMouseAdapter(Consumer<State> callbackState, Board board, BoardView view,
+            ActionJournal journal, HintOverlay hints) {
         return new MouseAdapter() {
             public void mouseClicked(MouseEvent e) {
+                // map the click to a cell, ignore clicks on the border
+                int index = view.cellAt(e.getX(), e.getY());
+                if (index < 0) {
+                    return;
+                }
+                view.clickStarted();
+                if (hints != null) {
+                    hints.cancel();
+                }
+                int row = index / board.getWidth();
+                int col = index % board.getWidth();
+
                 // left click
                 if (e.getButton() == MouseEvent.BUTTON1) {
+                    if (journal != null) {
+                        journal.record(index, ActionJournal.LEFT_CLICK);
+                    }
                     board.leftClick(row, col);
                 }
                 // right click
                 if (e.getButton() == MouseEvent.BUTTON3) {
+                    if (journal != null) {
+                        journal.record(index, ActionJournal.RIGHT_CLICK);
+                    }
                     board.rightClick(row, col);
                 }
 
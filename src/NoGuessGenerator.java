@@ -0,0 +1,184 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// a no-guess generator builds boards that can be solved from the first click by
+// logic alone
+//
+// candidate boards (seeds derived from one base seed, always with a safe
+// opening) are played out by a Solver that may only reveal deduced safe cells.
+// every core verifies candidates at once, the first board that is won wins, and
+// the others stop at their next move. if nothing is found within the latency
+// budget, a regular board with a safe opening is returned instead, and the
+// result says so.
+public class NoGuessGenerator {
+    static final long DEFAULT_BUDGET_MILLIS = 1500;
+
+    // a generated board, and whether it is known to need no guessing (false for
+    // the board returned when the budget ran out, which may need a guess)
+    public static class Result {
+        private final Board board;
+        private final boolean noGuess;
+
+        Result(Board board, boolean noGuess) {
+            this.board = board;
+            this.noGuess = noGuess;
+        }
+
+        public Board getBoard() {
+            return this.board;
+        }
+
+        public boolean isNoGuess() {
+            return this.noGuess;
+        }
+    }
+
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "no-guess-generator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private NoGuessGenerator() {
+    }
+
+    public static Result generate(int height, int width, int nMines, int firstRow, int firstCol, long seed) {
+        return generate(height, width, nMines, firstRow, firstCol, seed, DEFAULT_BUDGET_MILLIS);
+    }
+
+    // return a board that needs no guessing from (firstRow, firstCol), or a board
+    // with a safe opening if none was found within budgetMillis
+    public static Result generate(int height, int width, int nMines, int firstRow, int firstCol, long seed,
+            long budgetMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        AtomicReference<Board> winner = new AtomicReference<>();
+        AtomicLong nextCandidate = new AtomicLong();
+        Object done = new Object();
+
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(EXECUTOR.submit(() -> {
+                while (winner.get() == null && deadline - System.nanoTime() > 0
+                        && !Thread.currentThread().isInterrupted()) {
+                    long candidate = candidateSeed(seed, nextCandidate.getAndIncrement());
+                    Board board = new Board(height, width, nMines, firstRow, firstCol, candidate, true);
+
+                    if (solvesWithoutGuessing(board, firstRow, firstCol, winner, deadline)
+                            && winner.compareAndSet(null, board)) {
+                        synchronized (done) {
+                            done.notifyAll();
+                        }
+                    }
+                }
+            }));
+        }
+
+        // wait for a winner or the deadline, whichever comes first
+        synchronized (done) {
+            long remaining;
+            while (winner.get() == null && (remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(done, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+
+        // cancel the candidates still being verified
+        for (Future<?> worker : workers) {
+            worker.cancel(true);
+        }
+
+        Board board = winner.get();
+        if (board == null) {
+            return new Result(new Board(height, width, nMines, firstRow, firstCol, seed, true), false);
+        }
+
+        // hand back an untouched board, the winner was played out
+        return new Result(new Board(height, width, nMines, firstRow, firstCol, board.getSeed(), true), true);
+    }
+
+    // play the board from the first click, only ever revealing cells the solver
+    // deduced to be safe, stop early once another candidate won or time is up
+    static boolean solvesWithoutGuessing(Board board, int firstRow, int firstCol, AtomicReference<Board> winner,
+            long deadline) {
+        Solver solver = new Solver(board);
+        board.addBoardListener(solver);
+        return solves(board, solver, firstRow, firstCol, winner, deadline);
+    }
+
+    // the same with a solver that already follows the board, winner may be null
+    // when no other candidate races this one
+    private static boolean solves(Board board, Solver solver, int firstRow, int firstCol,
+            AtomicReference<Board> winner, long deadline) {
+        board.leftClick(firstRow, firstCol);
+
+        while (board.getState() == State.IN_PROGRESS) {
+            if ((winner != null && winner.get() != null) || deadline - System.nanoTime() <= 0
+                    || Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+
+            solver.deduce();
+            int safe = solver.nextSafe();
+            if (safe < 0) {
+                return false;
+            }
+            board.leftClick(safe / board.getWidth(), safe % board.getWidth());
+        }
+
+        return board.getState() == State.WON;
+    }
+
+    // a search for no-guess boards on the calling thread, for callers that keep
+    // every core busy already (the simulator): there is no shared pool to wait
+    // for, and one board and solver verify every candidate
+    static class LocalSearch {
+        private final Board candidate;
+        private final Solver solver;
+
+        LocalSearch(int height, int width, int nMines) {
+            this.candidate = new Board(height, width, nMines, 0, 0, 0, true);
+            this.solver = new Solver(this.candidate);
+            this.candidate.addBoardListener(this.solver);
+        }
+
+        // reset board (of the same size) to a board that needs no guessing from
+        // (firstRow, firstCol), trying the candidates of generate one at a time,
+        // or to the board with a safe opening from seed if none was found within
+        // budgetMillis. return whether it needs no guessing
+        boolean generate(Board board, int nMines, int firstRow, int firstCol, long seed, long budgetMillis) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+            for (long n = 0; deadline - System.nanoTime() > 0; n++) {
+                long candidate = candidateSeed(seed, n);
+                this.candidate.reset(nMines, firstRow, firstCol, candidate, true);
+                this.solver.reset(this.candidate);
+                if (solves(this.candidate, this.solver, firstRow, firstCol, null, deadline)) {
+                    board.reset(nMines, firstRow, firstCol, candidate, true);
+                    return true;
+                }
+            }
+            board.reset(nMines, firstRow, firstCol, seed, true);
+            return false;
+        }
+    }
+
+    // the seed of the n-th candidate, spread out from the base seed
+    private static long candidateSeed(long seed, long n) {
+        long z = seed + n * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,21 @@
+package src;
+
+import java.util.SplittableRandom;
+
+// reveals covered cells at random, a baseline for the other strategies
+public class RandomStrategy implements Strategy {
+    private final SplittableRandom random = new SplittableRandom();
+
+    @Override
+    public int nextMove(Board board) {
+        int size = board.getHeight() * board.getWidth();
+        int start = this.random.nextInt(size);
+        for (int i = 0; i < size; i++) {
+            int index = (start + i) % size;
+            if (!board.getRevealed(index) && !board.getFlagged(index)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+}
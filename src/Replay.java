@@ -0,0 +1,203 @@
+package src;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+// a replay re-executes an action journal headlessly on a fresh board, either as
+// fast as possible or with the original timing between actions
+//
+// java -cp coffeesweeper.jar src.Replay game.csj [--real-time] [--repeat n]
+public class Replay {
+    private final int height;
+    private final int width;
+    private final int nMines;
+    private final long seed;
+    private final boolean safeOpening;
+
+    // the decoded actions: flat index, action type and delay in microseconds
+    private final int[] indices;
+    private final byte[] types;
+    private final long[] delays;
+    private final int count;
+    // whether the journal undoes actions, the board then keeps an undo log
+    private final boolean undoes;
+
+    private Replay(int height, int width, int nMines, long seed, boolean safeOpening, int[] indices, byte[] types,
+            long[] delays, int count) {
+        this.height = height;
+        this.width = width;
+        this.nMines = nMines;
+        this.seed = seed;
+        this.safeOpening = safeOpening;
+        this.indices = indices;
+        this.types = types;
+        this.delays = delays;
+        this.count = count;
+
+        boolean undoes = false;
+        for (int i = 0; i < count; i++) {
+            undoes |= types[i] == ActionJournal.UNDO;
+        }
+        this.undoes = undoes;
+    }
+
+    // read and decode a journal, a record cut off at the end (the game crashed
+    // while writing it) is ignored
+    public static Replay load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < ActionJournal.HEADER_BYTES) {
+                throw new IOException("Not a Coffeesweeper action journal.");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != ActionJournal.MAGIC) {
+                throw new IOException("Not a Coffeesweeper action journal.");
+            }
+            int version = buffer.getInt();
+            if (version != ActionJournal.VERSION) {
+                throw new IOException("Unsupported action journal version " + version + ".");
+            }
+            int height = buffer.getInt();
+            int width = buffer.getInt();
+            int nMines = buffer.getInt();
+            long seed = buffer.getLong();
+            boolean safeOpening = (buffer.get() & ActionJournal.FLAG_SAFE_OPENING) != 0;
+            if (height <= 0 || width <= 0 || (long) height * width > Integer.MAX_VALUE - 8) {
+                throw new IOException("Corrupt action journal header.");
+            }
+
+            // every record is at least 2 bytes
+            int capacity = Math.max(16, buffer.remaining() / 2);
+            int[] indices = new int[capacity];
+            byte[] types = new byte[capacity];
+            long[] delays = new long[capacity];
+            int count = 0;
+            long cells = (long) height * width;
+
+            while (buffer.hasRemaining()) {
+                long action = getVarint(buffer);
+                long delay = action < 0 ? -1 : getVarint(buffer);
+                if (delay < 0) {
+                    break;
+                }
+                if ((action >>> 2) >= cells) {
+                    throw new IOException("Corrupt action journal record " + count + ".");
+                }
+                indices[count] = (int) (action >>> 2);
+                types[count] = (byte) (action & 0x03);
+                delays[count] = delay;
+                count++;
+            }
+
+            if (count > 0 && types[0] != ActionJournal.LEFT_CLICK) {
+                throw new IOException("Action journal does not start with the first click.");
+            }
+            return new Replay(height, width, nMines, seed, safeOpening, Arrays.copyOf(indices, count),
+                    Arrays.copyOf(types, count), Arrays.copyOf(delays, count), count);
+        }
+    }
+
+    // replay every action on a new board and return it, the listener (if any)
+    // receives every batch of changes like a view would
+    public Board run(boolean realTime, BoardListener listener) {
+        if (this.count == 0) {
+            throw new IllegalStateException("The action journal is empty.");
+        }
+
+        int first = this.indices[0];
+        Board board = new Board(this.height, this.width, this.nMines, first / this.width, first % this.width,
+                this.seed, this.safeOpening);
+        if (listener != null) {
+            board.addBoardListener(listener);
+        }
+        if (this.undoes) {
+            board.setUndoEnabled(true);
+        }
+
+        long due = System.nanoTime();
+        for (int i = 0; i < this.count; i++) {
+            if (realTime) {
+                due += this.delays[i] * 1000;
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+
+            int row = this.indices[i] / this.width;
+            int col = this.indices[i] % this.width;
+            switch (this.types[i]) {
+                case ActionJournal.RIGHT_CLICK -> board.rightClick(row, col);
+                case ActionJournal.UNDO -> board.undo();
+                case ActionJournal.REDO -> board.redo();
+                default -> board.leftClick(row, col);
+            }
+        }
+        return board;
+    }
+
+    public int getActions() {
+        return this.count;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: Replay <journal> [--real-time] [--repeat n]");
+            System.exit(2);
+        }
+
+        boolean realTime = false;
+        int repeat = 1;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--real-time")) {
+                realTime = true;
+            } else if (args[i].equals("--repeat") && i + 1 < args.length) {
+                repeat = Integer.parseInt(args[++i]);
+            }
+        }
+
+        Replay replay = Replay.load(Paths.get(args[0]));
+        System.out.printf(Locale.ROOT, "%dx%d, %d mines, %d actions%n", replay.height, replay.width, replay.nMines,
+                replay.count);
+
+        for (int run = 0; run < repeat; run++) {
+            long start = System.nanoTime();
+            Board board = replay.run(realTime, null);
+            long nanos = System.nanoTime() - start;
+            System.out.printf(Locale.ROOT, "run %d: %s, %d cells uncovered, %.3f ms (%.0f actions/s)%n", run + 1,
+                    board.getState(), board.getCellsUncovered(), nanos / 1e6, replay.count / (nanos / 1e9));
+        }
+    }
+
+    // read an unsigned LEB128 varint, -1 if the buffer ends in the middle of it
+    private static long getVarint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        return -1;
+    }
+}
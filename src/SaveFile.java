@@ -0,0 +1,210 @@
+package src;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// a save file stores a game in progress as a fixed header followed by three
+// bit-packed planes (mines, revealed, flagged) of one bit per cell
+//
+// the file is memory-mapped in both directions and the planes are copied word
+// by word from and to the packed CellGrid, so no per-cell objects are created.
+// neighbor counts are not stored: they are recounted from the mines on load.
+//
+// layout (little-endian):
+// 0  : magic "CSAV"
+// 4  : format version
+// 8  : height
+// 12 : width
+// 16 : number of mines
+// 20 : cells uncovered
+// 24 : state (0 in progress, 1 won, 2 lost)
+// 25 : flags (bit 0: the seed is known)
+// 26 : padding, so the planes are 8-byte aligned
+// 32 : seed
+// 40 : elapsed nanoseconds
+// 48 : mine plane, revealed plane, flagged plane, each ceil(cells / 64) words
+public class SaveFile {
+    static final int MAGIC = 0x56415343; // "CSAV" read little-endian
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 48;
+
+    private static final int FLAG_SEED = 0x01;
+    private static final int[] PLANES = { CellGrid.MINE, CellGrid.REVEALED, CellGrid.FLAGGED };
+
+    // a board restored from a save file, with the time already spent on it
+    public static class SavedGame {
+        private final Board board;
+        private final long elapsedNanos;
+
+        SavedGame(Board board, long elapsedNanos) {
+            this.board = board;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public Board getBoard() {
+            return this.board;
+        }
+
+        public long getElapsedNanos() {
+            return this.elapsedNanos;
+        }
+    }
+
+    private SaveFile() {
+    }
+
+    // write the board and the time spent on it to path, replacing any file there
+    public static void save(Path path, Board board, long elapsedNanos) throws IOException {
+        if (!board.getTopology().isClassic()) {
+            throw new IllegalArgumentException("Only boards of the classic topology can be saved.");
+        }
+        CellGrid cells = board.getCells();
+        int words = words(cells.size());
+        long size = HEADER_BYTES + 3L * words * Long.BYTES;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, cells.getHeight());
+            buffer.putInt(12, cells.getWidth());
+            buffer.putInt(16, board.getMines());
+            buffer.putInt(20, board.getCellsUncovered());
+            buffer.put(24, stateCode(board.getState()));
+            buffer.put(25, (byte) FLAG_SEED);
+            buffer.putLong(32, board.getSeed());
+            buffer.putLong(40, elapsedNanos);
+
+            for (int plane = 0; plane < PLANES.length; plane++) {
+                LongBuffer words64 = planeOf(buffer, plane, words);
+                for (int word = 0; word < words; word++) {
+                    words64.put(word, cells.getPlane(word * 64, PLANES[plane]));
+                }
+            }
+        }
+    }
+
+    // read a board saved by save, restoring its state and progress exactly
+    public static SavedGame load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES) {
+                throw new IOException("Not a Coffeesweeper save file.");
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a Coffeesweeper save file.");
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException("Unsupported save file version " + buffer.getInt(4) + ".");
+            }
+
+            int height = buffer.getInt(8);
+            int width = buffer.getInt(12);
+            int nMines = buffer.getInt(16);
+            int cellsUncovered = buffer.getInt(20);
+            State state = stateOf(buffer.get(24));
+            boolean hasSeed = (buffer.get(25) & FLAG_SEED) != 0;
+            long seed = hasSeed ? buffer.getLong(32) : 0;
+            long elapsedNanos = buffer.getLong(40);
+
+            long cellCount = (long) height * width;
+            if (height <= 0 || width <= 0 || cellCount > Integer.MAX_VALUE - 8
+                    || nMines < 0 || nMines > cellCount || cellsUncovered < 0 || cellsUncovered > cellCount) {
+                throw new IOException("Corrupt save file header.");
+            }
+
+            int words = words((int) cellCount);
+            if (fileSize < HEADER_BYTES + 3L * words * Long.BYTES) {
+                throw new IOException("Save file is truncated.");
+            }
+
+            CellGrid cells = new CellGrid(height, width);
+            for (int plane = 0; plane < PLANES.length; plane++) {
+                LongBuffer words64 = planeOf(buffer, plane, words);
+                for (int word = 0; word < words; word++) {
+                    long bits = words64.get(word);
+                    if (bits != 0) {
+                        cells.setPlane(word * 64, PLANES[plane], bits);
+                    }
+                }
+            }
+
+            // the header has to agree with the planes, or the board would play on
+            // from a position no game can reach
+            int mines = 0;
+            int revealed = 0;
+            boolean mineRevealed = false;
+            for (int word = 0; word < words; word++) {
+                long mineBits = cells.getPlane(word * 64, CellGrid.MINE);
+                long revealedBits = cells.getPlane(word * 64, CellGrid.REVEALED);
+                mines += Long.bitCount(mineBits);
+                revealed += Long.bitCount(revealedBits);
+                mineRevealed |= (mineBits & revealedBits) != 0;
+            }
+            if (mines != nMines) {
+                throw new IOException("Corrupt save file: " + mines + " mines on a board of " + nMines + ".");
+            }
+            if (revealed != cellsUncovered) {
+                throw new IOException("Corrupt save file: " + revealed + " cells revealed, " + cellsUncovered
+                        + " uncovered.");
+            }
+            // the same rule as Board.updateState
+            State reached = mineRevealed ? State.LOST
+                    : cellCount - revealed > nMines ? State.IN_PROGRESS : State.WON;
+            if (state != reached) {
+                throw new IOException("Corrupt save file: the game is " + state + " but its cells say " + reached
+                        + ".");
+            }
+
+            return new SavedGame(new Board(cells, nMines, seed, state, cellsUncovered), elapsedNanos);
+        }
+    }
+
+    // number of 64-bit words in one plane
+    private static int words(int cells) {
+        return (cells + 63) >>> 6;
+    }
+
+    // a view of the words of one plane
+    private static LongBuffer planeOf(MappedByteBuffer buffer, int plane, int words) {
+        return buffer.slice(HEADER_BYTES + plane * words * Long.BYTES, words * Long.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .asLongBuffer();
+    }
+
+    private static byte stateCode(State state) {
+        switch (state) {
+            case WON:
+                return 1;
+            case LOST:
+                return 2;
+            default:
+                return 0;
+        }
+    }
+
+    private static State stateOf(byte code) throws IOException {
+        switch (code) {
+            case 0:
+                return State.IN_PROGRESS;
+            case 1:
+                return State.WON;
+            case 2:
+                return State.LOST;
+            default:
+                throw new IOException("Corrupt save file state " + code + ".");
+        }
+    }
+}
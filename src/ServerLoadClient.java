@@ -0,0 +1,237 @@
+package src;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// a load client plays random games against a GameServer from many connections
+// at once and reports throughput and latency percentiles
+//
+// java -cp coffeesweeper.jar src.ServerLoadClient --connections 1000 --seconds 10
+//
+// without --port, a server is started in the same process on a free loopback port
+public class ServerLoadClient {
+    private static final int COVERED = 0;
+    private static final int REVEALED = 1;
+    private static final int FLAGGED = 2;
+
+    private final String host;
+    private final int port;
+    private final int height;
+    private final int width;
+    private final int nMines;
+    private final long deadline;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder games = new LongAdder();
+    private final LongAdder wins = new LongAdder();
+
+    ServerLoadClient(String host, int port, int height, int width, int nMines, long deadline) {
+        this.host = host;
+        this.port = port;
+        this.height = height;
+        this.width = width;
+        this.nMines = nMines;
+        this.deadline = deadline;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String host = "127.0.0.1";
+        int port = 0;
+        int connections = 100;
+        int seconds = 10;
+        int height = 16;
+        int width = 30;
+        int nMines = 99;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--host" -> host = args[i + 1];
+                case "--port" -> port = Integer.parseInt(args[i + 1]);
+                case "--connections" -> connections = Integer.parseInt(args[i + 1]);
+                case "--seconds" -> seconds = Integer.parseInt(args[i + 1]);
+                case "--height" -> height = Integer.parseInt(args[i + 1]);
+                case "--width" -> width = Integer.parseInt(args[i + 1]);
+                case "--mines" -> nMines = Integer.parseInt(args[i + 1]);
+                default -> {
+                    System.err.println("usage: ServerLoadClient [--host h] [--port n] [--connections n]"
+                            + " [--seconds n] [--height n] [--width n] [--mines n]");
+                    System.exit(2);
+                }
+            }
+        }
+
+        GameServer server = null;
+        if (port == 0) {
+            server = new GameServer(0, GameServer.DEFAULT_IDLE_MILLIS);
+            port = server.getPort();
+        }
+
+        try {
+            long start = System.nanoTime();
+            long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+            ServerLoadClient client = new ServerLoadClient(host, port, height, width, nMines, deadline);
+            client.run(connections);
+            System.out.print(client.report(connections, System.nanoTime() - start));
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    // play from every connection until the deadline
+    void run(int connections) throws InterruptedException {
+        ExecutorService executor = GameServer.newConnectionExecutor();
+        List<Future<?>> clients = new ArrayList<>();
+        for (int c = 0; c < connections; c++) {
+            long seed = c;
+            clients.add(executor.submit(() -> {
+                this.play(new SplittableRandom(seed));
+                return null;
+            }));
+        }
+
+        try {
+            for (Future<?> client : clients) {
+                client.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A load client connection failed.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    String report(int connections, long nanos) {
+        double seconds = nanos / 1e9;
+        return String.format(Locale.ROOT,
+                "connections: %d over %.1f s%n"
+                        + "requests:    %d (%.0f requests/s), %d errors%n"
+                        + "games:       %d (%.0f games/s), %d won%n"
+                        + "latency:     p50 %.1f us, p90 %.1f us, p99 %.1f us, p99.9 %.1f us%n",
+                connections, seconds,
+                this.requests.sum(), this.requests.sum() / seconds, this.errors.sum(),
+                this.games.sum(), this.games.sum() / seconds, this.wins.sum(),
+                this.latency.percentile(50) / 1e3, this.latency.percentile(90) / 1e3,
+                this.latency.percentile(99) / 1e3, this.latency.percentile(99.9) / 1e3);
+    }
+
+    // play random games on one connection: mostly reveals, some flags and chords
+    private void play(SplittableRandom random) throws IOException {
+        try (Socket socket = new Socket(this.host, this.port);
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                Writer out = new BufferedWriter(
+                        new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII))) {
+            socket.setTcpNoDelay(true);
+            byte[] known = new byte[this.height * this.width];
+
+            while (System.nanoTime() - this.deadline < 0) {
+                String created = this.request(in, out,
+                        "NEW " + this.height + " " + this.width + " " + this.nMines + " safe");
+                String session = created.substring(3);
+                Arrays.fill(known, (byte) COVERED);
+
+                String state = "IN_PROGRESS";
+                boolean started = false;
+                while (state.equals("IN_PROGRESS") && System.nanoTime() - this.deadline < 0) {
+                    // the first action of a game has to be a reveal
+                    int roll = started ? random.nextInt(10) : 9;
+                    started = true;
+                    String verb = "REVEAL";
+                    int index = -1;
+                    if (roll == 0) {
+                        verb = "FLAG";
+                        index = pick(known, COVERED, random);
+                    } else if (roll == 1) {
+                        verb = "CHORD";
+                        index = pick(known, REVEALED, random);
+                    }
+                    if (index < 0) {
+                        verb = "REVEAL";
+                        index = pick(known, COVERED, random);
+                    }
+
+                    String response = this.request(in, out, verb + " " + session + " " + index / this.width + " "
+                            + index % this.width);
+                    state = this.apply(response, known);
+                }
+
+                this.request(in, out, "END " + session);
+                this.games.increment();
+                if (state.equals("WON")) {
+                    this.wins.increment();
+                }
+            }
+        }
+    }
+
+    // send one request and wait for its response
+    private String request(BufferedReader in, Writer out, String request) throws IOException {
+        long start = System.nanoTime();
+        out.write(request);
+        out.write('\n');
+        out.flush();
+        String response = in.readLine();
+        this.latency.record(System.nanoTime() - start);
+        this.requests.increment();
+
+        if (response == null) {
+            throw new IOException("The server closed the connection.");
+        }
+        if (response.startsWith("ERR")) {
+            this.errors.increment();
+        }
+        return response;
+    }
+
+    // apply the changed cells of an action response, return the game state
+    private String apply(String response, byte[] known) {
+        String[] parts = response.split(" ");
+        if (!parts[0].equals("OK")) {
+            return "IN_PROGRESS";
+        }
+        for (int i = 3; i < parts.length; i++) {
+            int colon = parts[i].indexOf(':');
+            int index = Integer.parseInt(parts[i], 0, colon, 10);
+            char value = parts[i].charAt(colon + 1);
+            known[index] = (byte) (value == 'F' ? FLAGGED : value == '.' ? COVERED : REVEALED);
+        }
+        return parts[1];
+    }
+
+    // a random cell in the given state, -1 if there is none
+    private static int pick(byte[] known, int state, SplittableRandom random) {
+        for (int attempt = 0; attempt < 32; attempt++) {
+            int index = random.nextInt(known.length);
+            if (known[index] == state) {
+                return index;
+            }
+        }
+        int start = random.nextInt(known.length);
+        for (int i = 0; i < known.length; i++) {
+            int index = (start + i) % known.length;
+            if (known[index] == state) {
+                return index;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,416 @@
+package src;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+// a simulator plays large numbers of games headlessly with a strategy, sharded
+// across cores, and reports win rate and timing with confidence intervals
+//
+// java -cp coffeesweeper.jar src.Simulator --games 1000000 --height 16 --width 30
+//     --mines 99 --strategy solver --generator safe --out results.bin --stats stats.css
+//
+// every thread reuses one board (and its strategy's state) for all of its games.
+// per-game results are streamed to --out as a header followed by fixed-width
+// records, see writeHeader and Worker.record, and added to the stats store at
+// --stats (see StatsStore).
+public class Simulator {
+    // how boards are generated
+    enum Generator {
+        PLAIN, SAFE, NO_GUESS
+    }
+
+    static final int MAGIC = 0x4353494D; // "CSIM"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 4 + 4 + 4 + 4 + 4 + 8 + 1;
+    // game index, outcome, clicks, cells revealed, nanoseconds
+    static final int RECORD_BYTES = 8 + 1 + 4 + 4 + 8;
+
+    static final byte OUTCOME_LOST = StatsStore.OUTCOME_LOST;
+    static final byte OUTCOME_WON = StatsStore.OUTCOME_WON;
+    static final byte OUTCOME_ABANDONED = StatsStore.OUTCOME_ABANDONED;
+
+    // games handed to a thread at a time
+    private static final int BLOCK = 256;
+    private static final int BUFFER_BYTES = RECORD_BYTES * 4096;
+
+    private final int height;
+    private final int width;
+    private final int nMines;
+    private final long games;
+    private final int threads;
+    private final long seed;
+    private final Generator generator;
+    private final String strategy;
+    private final Path out;
+    private final Path stats;
+
+    Simulator(int height, int width, int nMines, long games, int threads, long seed, Generator generator,
+            String strategy, Path out) {
+        this(height, width, nMines, games, threads, seed, generator, strategy, out, null);
+    }
+
+    Simulator(int height, int width, int nMines, long games, int threads, long seed, Generator generator,
+            String strategy, Path out, Path stats) {
+        this.height = height;
+        this.width = width;
+        this.nMines = nMines;
+        this.games = games;
+        this.threads = threads;
+        this.seed = seed;
+        this.generator = generator;
+        this.strategy = strategy;
+        this.out = out;
+        this.stats = stats;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int height = 16;
+        int width = 30;
+        int nMines = 99;
+        long games = 100_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 0;
+        Generator generator = Generator.SAFE;
+        String strategy = "solver";
+        Path out = null;
+        Path stats = null;
+
+        for (int i = 0; i < args.length; i++) {
+            // every option takes a value
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            if (value == null) {
+                usage();
+            }
+            try {
+                switch (args[i]) {
+                    case "--height" -> height = Integer.parseInt(value);
+                    case "--width" -> width = Integer.parseInt(value);
+                    case "--mines" -> nMines = Integer.parseInt(value);
+                    case "--games" -> games = Long.parseLong(value);
+                    case "--threads" -> threads = Integer.parseInt(value);
+                    case "--seed" -> seed = Long.parseLong(value);
+                    case "--generator" -> generator = Generator.valueOf(
+                            value.toUpperCase(Locale.ROOT).replace('-', '_'));
+                    case "--strategy" -> strategy = value;
+                    case "--out" -> out = Paths.get(value);
+                    case "--stats" -> stats = Paths.get(value);
+                    default -> usage();
+                }
+            } catch (IllegalArgumentException e) {
+                // a number that doesn't parse, or an unknown generator
+                System.err.println("Invalid value for " + args[i] + ": " + value);
+                usage();
+            }
+            i++;
+        }
+
+        Simulator simulator = new Simulator(height, width, nMines, games, threads, seed, generator, strategy, out,
+                stats);
+        System.out.print(simulator.run().summary(threads));
+    }
+
+    private static void usage() {
+        System.err.println("usage: Simulator [--games n] [--height n] [--width n] [--mines n]"
+                + " [--threads n] [--seed n] [--generator plain|safe|no-guess]"
+                + " [--strategy solver|random|<class name>] [--out file] [--stats file]");
+        System.exit(2);
+    }
+
+    // build a fresh strategy for one thread
+    Strategy newStrategy() {
+        switch (this.strategy) {
+            case "solver":
+                return new SolverStrategy();
+            case "random":
+                return new RandomStrategy();
+            default:
+                try {
+                    return (Strategy) Class.forName(this.strategy).getDeclaredConstructor().newInstance();
+                } catch (ReflectiveOperationException | ClassCastException e) {
+                    throw new IllegalArgumentException("Unknown strategy: " + this.strategy, e);
+                }
+        }
+    }
+
+    // play every game and return the combined statistics
+    public Stats run() throws IOException, InterruptedException {
+        FileChannel channel = null;
+        if (this.out != null) {
+            channel = FileChannel.open(this.out, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.writeHeader(channel);
+        }
+        StatsStore store = this.stats != null ? new StatsStore(this.stats) : null;
+
+        AtomicLong nextBlock = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+        List<Future<Stats>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        try {
+            for (int t = 0; t < this.threads; t++) {
+                results.add(executor.submit(new Worker(nextBlock, channel, store)::call));
+            }
+
+            Stats total = new Stats();
+            for (Future<Stats> result : results) {
+                total.merge(result.get());
+            }
+            total.wallNanos = System.nanoTime() - start;
+            return total;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A simulation thread failed.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+            if (channel != null) {
+                channel.close();
+            }
+            if (store != null) {
+                store.close();
+            }
+        }
+    }
+
+    private void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION)
+                .putInt(this.height).putInt(this.width).putInt(this.nMines)
+                .putLong(this.seed).put((byte) this.generator.ordinal());
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    // the seed of the n-th game, spread out from the base seed
+    static long gameSeed(long seed, long n) {
+        long z = seed + (n + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // plays blocks of games on one thread, reusing its board and strategy
+    private class Worker {
+        private final AtomicLong nextBlock;
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private final StatsStore store;
+        private final Stats stats = new Stats();
+        private final Strategy strategy = Simulator.this.newStrategy();
+        private Board board;
+        // verifies no-guess candidates on this thread, created by the first game
+        private NoGuessGenerator.LocalSearch search;
+        // moves go through the batch API, one reveal per batch
+        private final int[] move = new int[1];
+        private final BatchResult result = new BatchResult();
+
+        Worker(AtomicLong nextBlock, FileChannel channel, StatsStore store) {
+            this.nextBlock = nextBlock;
+            this.channel = channel;
+            this.store = store;
+            this.buffer = channel != null ? ByteBuffer.allocateDirect(BUFFER_BYTES) : null;
+        }
+
+        Stats call() throws IOException {
+            long block;
+            while ((block = this.nextBlock.getAndIncrement() * BLOCK) < Simulator.this.games) {
+                long end = Math.min(Simulator.this.games, block + BLOCK);
+                for (long game = block; game < end; game++) {
+                    this.play(game);
+                }
+            }
+            this.flush();
+            return this.stats;
+        }
+
+        private void play(long game) throws IOException {
+            int height = Simulator.this.height;
+            int width = Simulator.this.width;
+            int firstRow = height / 2;
+            int firstCol = width / 2;
+            long seed = gameSeed(Simulator.this.seed, game);
+
+            long start = System.nanoTime();
+            boolean safeOpening = Simulator.this.generator != Generator.PLAIN;
+            boolean noGuess = Simulator.this.generator == Generator.NO_GUESS;
+            if (this.board == null) {
+                this.board = new Board(height, width, Simulator.this.nMines, firstRow, firstCol, seed, safeOpening);
+            } else if (!noGuess) {
+                this.board.reset(Simulator.this.nMines, firstRow, firstCol, seed, safeOpening);
+            }
+            // every thread is busy with games already, so no-guess candidates are
+            // verified here rather than on the generator's shared pool
+            boolean fallback = false;
+            if (noGuess) {
+                if (this.search == null) {
+                    this.search = new NoGuessGenerator.LocalSearch(height, width, Simulator.this.nMines);
+                }
+                fallback = !this.search.generate(this.board, Simulator.this.nMines, firstRow, firstCol, seed,
+                        NoGuessGenerator.DEFAULT_BUDGET_MILLIS);
+            }
+
+            this.strategy.newGame(this.board);
+            this.board.leftClick(firstRow, firstCol);
+            int clicks = 1;
+
+            // a strategy that keeps clicking revealed cells would never finish
+            int maxClicks = height * width;
+            while (this.board.getState() == State.IN_PROGRESS && clicks <= maxClicks) {
+                int index = this.strategy.nextMove(this.board);
+                if (index < 0) {
+                    break;
+                }
+                this.move[0] = Board.action(Board.REVEAL, index);
+                this.board.apply(this.move, 0, 1, this.result);
+                clicks++;
+            }
+            long nanos = System.nanoTime() - start;
+
+            byte outcome = switch (this.board.getState()) {
+                case WON -> OUTCOME_WON;
+                case LOST -> OUTCOME_LOST;
+                default -> OUTCOME_ABANDONED;
+            };
+            this.stats.add(outcome, clicks, this.board.getCellsUncovered(), nanos);
+            if (noGuess) {
+                this.stats.addNoGuess(outcome, fallback);
+            }
+            this.record(game, outcome, clicks, this.board.getCellsUncovered(), nanos);
+            if (this.store != null) {
+                this.store.record(height, width, Simulator.this.nMines, outcome, nanos, seed, clicks);
+            }
+        }
+
+        private void record(long game, byte outcome, int clicks, int revealed, long nanos) throws IOException {
+            if (this.buffer == null) {
+                return;
+            }
+            if (this.buffer.remaining() < RECORD_BYTES) {
+                this.flush();
+            }
+            this.buffer.putLong(game).put(outcome).putInt(clicks).putInt(revealed).putLong(nanos);
+        }
+
+        // FileChannel writes are atomic with respect to each other, so every
+        // thread appends its own buffer of whole records
+        private void flush() throws IOException {
+            if (this.buffer == null) {
+                return;
+            }
+            this.buffer.flip();
+            synchronized (this.channel) {
+                while (this.buffer.hasRemaining()) {
+                    this.channel.write(this.buffer);
+                }
+            }
+            this.buffer.clear();
+        }
+    }
+
+    // running totals of a set of games, timing uses Welford's online variance
+    static class Stats {
+        long games;
+        long won;
+        long lost;
+        long clicks;
+        long revealed;
+        // no-guess games, and those played on a board with a safe opening instead
+        // as no no-guess board was found in time (counted in the totals above too)
+        long noGuessGames;
+        long fallbacks;
+        long fallbacksWon;
+        double meanNanos;
+        double m2Nanos;
+        long wallNanos;
+
+        void add(byte outcome, int clicks, int revealed, long nanos) {
+            this.games++;
+            if (outcome == OUTCOME_WON) {
+                this.won++;
+            } else if (outcome == OUTCOME_LOST) {
+                this.lost++;
+            }
+            this.clicks += clicks;
+            this.revealed += revealed;
+
+            double delta = nanos - this.meanNanos;
+            this.meanNanos += delta / this.games;
+            this.m2Nanos += delta * (nanos - this.meanNanos);
+        }
+
+        void addNoGuess(byte outcome, boolean fallback) {
+            this.noGuessGames++;
+            if (fallback) {
+                this.fallbacks++;
+                if (outcome == OUTCOME_WON) {
+                    this.fallbacksWon++;
+                }
+            }
+        }
+
+        // combine with the totals of another thread (Chan et al.)
+        void merge(Stats other) {
+            long games = this.games + other.games;
+            if (games == 0) {
+                return;
+            }
+            double delta = other.meanNanos - this.meanNanos;
+            this.m2Nanos += other.m2Nanos + delta * delta * this.games * other.games / games;
+            this.meanNanos += delta * other.games / games;
+            this.games = games;
+            this.won += other.won;
+            this.lost += other.lost;
+            this.clicks += other.clicks;
+            this.revealed += other.revealed;
+            this.noGuessGames += other.noGuessGames;
+            this.fallbacks += other.fallbacks;
+            this.fallbacksWon += other.fallbacksWon;
+        }
+
+        String summary(int threads) {
+            double z = 1.96;
+            double n = Math.max(1, this.games);
+            double p = this.won / n;
+
+            // Wilson score interval for the win rate
+            double center = (p + z * z / (2 * n)) / (1 + z * z / n);
+            double margin = z / (1 + z * z / n) * Math.sqrt(p * (1 - p) / n + z * z / (4 * n * n));
+
+            double sd = this.games > 1 ? Math.sqrt(this.m2Nanos / (this.games - 1)) : 0;
+            double timeMargin = z * sd / Math.sqrt(n);
+            double seconds = this.wallNanos / 1_000_000_000.0;
+
+            String summary = String.format(Locale.ROOT,
+                    "games:      %d (%.0f games/s on %d threads)%n"
+                            + "won:        %d, lost: %d, abandoned: %d%n"
+                            + "win rate:   %.3f%% (95%% CI %.3f%% - %.3f%%)%n"
+                            + "game time:  %.2f us (95%% CI +/- %.2f us, sd %.2f us)%n"
+                            + "clicks:     %.2f per game%n"
+                            + "revealed:   %.2f cells per game%n",
+                    this.games, seconds > 0 ? this.games / seconds : 0, threads,
+                    this.won, this.lost, this.games - this.won - this.lost,
+                    100 * p, 100 * (center - margin), 100 * (center + margin),
+                    this.meanNanos / 1000, timeMargin / 1000, sd / 1000,
+                    this.clicks / n, this.revealed / n);
+            if (this.noGuessGames > 0) {
+                // the win rate above counts the games on fallback boards as well
+                summary += String.format(Locale.ROOT,
+                        "no-guess:   %d fell back to a safe opening (%.3f%%, %d of them won)%n",
+                        this.fallbacks, 100.0 * this.fallbacks / this.noGuessGames, this.fallbacksWon);
+            }
+            return summary;
+        }
+    }
+}
@@ -0,0 +1,1106 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+// a solver works out which covered cells are certainly safe, certainly mines,
+// or how likely they are to be mines, from what the player can see: revealed
+// numbers and flags (flags are trusted to be mines)
+//
+// the solver keeps its own copy of the visible state, updated from the board's
+// change batches, so every update only touches the cells around the changes:
+// - deduce() propagates single-cell and subset constraints from the revealed
+//   numbers next to changed cells
+// - computeProbabilities() splits the frontier (unknown cells next to a number)
+//   into independent components, re-enumerates only the components near
+//   changes (in parallel for large ones), and weights them against the mines
+//   left for the cells away from the frontier
+//
+// every component is enumerated exactly, whatever its size, unless that takes
+// more than the enumeration budget: such a component is approximated from the
+// densities of its constraints instead (see isExact)
+//
+// interrupting the thread that computes probabilities cancels the computation
+// with a CancellationException, the solver is left as it was before the call
+public class Solver implements BoardListener {
+    // visible state of a cell: 0-8 is a revealed number, the rest are covered
+    // (or a revealed mine)
+    static final byte UNKNOWN = 9;
+    static final byte FLAG = 10;
+    static final byte SAFE = 11;
+    static final byte MINE = 12;
+    static final byte EXPLODED = 13;
+
+    // default number of enumeration steps a component may take, one that needs
+    // more is approximated instead (about 50 ms on one core)
+    static final long ENUMERATION_BUDGET = 1L << 20;
+    // components with more cells than this are enumerated with fork/join
+    static final int PARALLEL_CELLS = 20;
+    // number of leading cells whose assignments are split into parallel tasks
+    private static final int SPLIT_DEPTH = 6;
+    // enumeration steps between checks for cancellation
+    private static final int CANCEL_CHECK_MASK = 0xFFF;
+
+    private final int height;
+    private final int width;
+    private int nMines;
+    private long enumerationBudget = ENUMERATION_BUDGET;
+
+    private final byte[] view;
+    private final boolean[] frontier;
+    private final boolean[] queued;
+    // scratch marks for collecting the numbers around a component
+    private final boolean[] marked;
+
+    // number of covered cells with nothing known about them, and of cells known
+    // to be mines (flagged or deduced)
+    private int unknownCount;
+    private int knownMines;
+
+    // revealed numbers whose constraint has to be looked at again
+    private final IntStack dirty = new IntStack();
+    // cells that changed since the last probability computation
+    private final IntStack changedSinceProbabilities = new IntStack();
+    // deduced safe cells, may hold cells that were revealed since
+    private final IntStack safeCells = new IntStack();
+    // cells deduced safe or mine, may hold cells that were revealed since
+    private final IntStack deduced = new IntStack();
+
+    // frontier components from the last probability computation, the component
+    // and local index of every frontier cell, -1 for none
+    private final List<Component> components = new ArrayList<>();
+    private final int[] componentOf;
+    private final int[] localOf;
+    private double interiorProbability;
+    private boolean probabilitiesStale = true;
+    // position of the last interior cell returned by bestGuess
+    private int interiorCursor = 0;
+
+    // read the visible state of the whole board once, later updates come from
+    // boardChanged
+    Solver(Board board) {
+        this(board.getHeight(), board.getWidth());
+        if (!board.getTopology().isClassic()) {
+            throw new IllegalArgumentException("The solver only plays boards of the classic topology.");
+        }
+        this.reset(board);
+    }
+
+    // start from visible values (see visibleValue) instead of a board, for a
+    // solver that runs away from the thread that plays the board
+    Solver(int height, int width, int nMines, byte[] visible) {
+        this(height, width);
+        this.reset(nMines, visible);
+    }
+
+    private Solver(int height, int width) {
+        this.height = height;
+        this.width = width;
+
+        int size = this.height * this.width;
+        this.view = new byte[size];
+        this.frontier = new boolean[size];
+        this.queued = new boolean[size];
+        this.marked = new boolean[size];
+        this.componentOf = new int[size];
+        this.localOf = new int[size];
+    }
+
+    // forget everything and read the visible state of the board again, reusing
+    // every array (the board must have the same dimensions)
+    public void reset(Board board) {
+        if (board.getHeight() != this.height || board.getWidth() != this.width) {
+            throw new IllegalArgumentException("Attempted to reset a solver with a board of another size.");
+        }
+
+        this.clear(board.getMines());
+        for (int index = 0; index < this.view.length; index++) {
+            if (board.getRevealed(index) || board.getFlagged(index)) {
+                this.setVisible(index, visibleValue(board, index));
+            }
+        }
+    }
+
+    // forget everything and start again from the visible value of every cell
+    void reset(int nMines, byte[] visible) {
+        if (visible.length != this.view.length) {
+            throw new IllegalArgumentException("Attempted to reset a solver with a board of another size.");
+        }
+
+        this.clear(nMines);
+        for (int index = 0; index < this.view.length; index++) {
+            if (visible[index] != UNKNOWN) {
+                this.setVisible(index, visible[index]);
+            }
+        }
+    }
+
+    private void clear(int nMines) {
+        this.nMines = nMines;
+        Arrays.fill(this.view, UNKNOWN);
+        Arrays.fill(this.frontier, false);
+        Arrays.fill(this.queued, false);
+        Arrays.fill(this.componentOf, -1);
+        this.unknownCount = this.view.length;
+        this.knownMines = 0;
+        this.dirty.clear();
+        this.changedSinceProbabilities.clear();
+        this.safeCells.clear();
+        this.deduced.clear();
+        this.components.clear();
+        this.interiorProbability = 0;
+        this.probabilitiesStale = true;
+        this.interiorCursor = 0;
+    }
+
+    // the visible value of a cell on the board, as stored in view
+    static byte visibleValue(Board board, int index) {
+        if (board.getFlagged(index)) {
+            return FLAG;
+        }
+        else if (!board.getRevealed(index)) {
+            return UNKNOWN;
+        }
+        else if (board.getMine(index)) {
+            return EXPLODED;
+        }
+        else {
+            return (byte) board.getNeighborMines(index);
+        }
+    }
+
+    @Override
+    public void boardChanged(Board board, int[] changed, int count) {
+        for (int i = 0; i < count; i++) {
+            this.setVisible(changed[i], visibleValue(board, changed[i]));
+        }
+    }
+
+    // update the visible value of one cell (one of 0-8, UNKNOWN, FLAG or EXPLODED)
+    // a covered cell that the solver already deduced keeps its deduction
+    public void setVisible(int index, byte value) {
+        byte old = this.view[index];
+        if (value == UNKNOWN && (old == SAFE || old == MINE)) {
+            return;
+        }
+        this.setStatus(index, value);
+
+        // a number covered again (undo) or a flag taken away may be what the
+        // deductions were made from, forget them all: the constraints around
+        // them are queued again and the next deduce() makes the ones that hold
+        if (value == UNKNOWN && old != UNKNOWN) {
+            this.forgetDeductions();
+        }
+    }
+
+    private void forgetDeductions() {
+        for (int i = 0; i < this.deduced.size(); i++) {
+            int cell = this.deduced.get(i);
+            if (this.view[cell] == SAFE || this.view[cell] == MINE) {
+                this.setStatus(cell, UNKNOWN);
+            }
+        }
+        this.deduced.clear();
+    }
+
+    private void setStatus(int index, byte value) {
+        byte old = this.view[index];
+        if (old == value) {
+            return;
+        }
+
+        this.view[index] = value;
+        if (old == UNKNOWN) {
+            this.unknownCount--;
+        }
+        if (value == UNKNOWN) {
+            this.unknownCount++;
+        }
+        if (old == FLAG || old == MINE) {
+            this.knownMines--;
+        }
+        if (value == FLAG || value == MINE) {
+            this.knownMines++;
+        }
+        if (value == SAFE) {
+            this.safeCells.push(index);
+        }
+        if (value == SAFE || value == MINE) {
+            this.deduced.push(index);
+        }
+
+        this.changedSinceProbabilities.push(index);
+        this.probabilitiesStale = true;
+
+        // the cell and its neighbors may have joined or left the frontier, and the
+        // constraints around it have changed
+        int row = index / this.width;
+        int col = index - row * this.width;
+        this.updateFrontier(index);
+        this.queueConstraint(index);
+        for (int r = Math.max(0, row - 1); r <= Math.min(this.height - 1, row + 1); r++) {
+            for (int c = Math.max(0, col - 1); c <= Math.min(this.width - 1, col + 1); c++) {
+                int neighbor = r * this.width + c;
+                this.updateFrontier(neighbor);
+                this.queueConstraint(neighbor);
+            }
+        }
+    }
+
+    private void updateFrontier(int index) {
+        boolean isFrontier = false;
+        if (this.view[index] == UNKNOWN) {
+            int row = index / this.width;
+            int col = index - row * this.width;
+            for (int r = Math.max(0, row - 1); r <= Math.min(this.height - 1, row + 1) && !isFrontier; r++) {
+                for (int c = Math.max(0, col - 1); c <= Math.min(this.width - 1, col + 1); c++) {
+                    if (this.view[r * this.width + c] <= 8) {
+                        isFrontier = true;
+                        break;
+                    }
+                }
+            }
+        }
+        this.frontier[index] = isFrontier;
+    }
+
+    private void queueConstraint(int index) {
+        if (this.view[index] <= 8 && !this.queued[index]) {
+            this.queued[index] = true;
+            this.dirty.push(index);
+        }
+    }
+
+    public boolean isSafe(int index) {
+        return this.view[index] == SAFE;
+    }
+
+    public boolean isMine(int index) {
+        return this.view[index] == MINE || this.view[index] == FLAG;
+    }
+
+    // return a deduced safe cell that is still covered, -1 if there is none
+    public int nextSafe() {
+        while (!this.safeCells.isEmpty()) {
+            int index = this.safeCells.pop();
+            if (this.view[index] == SAFE) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    // propagate constraints from every revealed number near a change until
+    // nothing more can be deduced, return the number of cells deduced
+    public int deduce() {
+        int deduced = 0;
+        int[] unknownA = new int[8];
+        int[] unknownB = new int[8];
+
+        while (!this.dirty.isEmpty()) {
+            int a = this.dirty.pop();
+            this.queued[a] = false;
+            // the number was covered again since it was queued
+            if (this.view[a] > 8) {
+                continue;
+            }
+
+            int sizeA = this.unknownNeighbors(a, unknownA);
+            if (sizeA == 0) {
+                continue;
+            }
+            int minesA = this.view[a] - this.knownMineNeighbors(a);
+
+            // single cell: every unknown neighbor is safe, or every one is a mine
+            if (minesA == 0 || minesA == sizeA) {
+                for (int i = 0; i < sizeA; i++) {
+                    this.setStatus(unknownA[i], minesA == 0 ? SAFE : MINE);
+                }
+                deduced += sizeA;
+                continue;
+            }
+
+            // subset: if A's unknowns are all neighbors of B, B's other unknowns
+            // hold exactly B's mines minus A's, and the same the other way round
+            // (either of the two may be the one that changed)
+            int row = a / this.width;
+            int col = a - row * this.width;
+            search:
+            for (int r = Math.max(0, row - 2); r <= Math.min(this.height - 1, row + 2); r++) {
+                for (int c = Math.max(0, col - 2); c <= Math.min(this.width - 1, col + 2); c++) {
+                    int b = r * this.width + c;
+                    if (b == a || this.view[b] > 8) {
+                        continue;
+                    }
+
+                    int sizeB = this.unknownNeighbors(b, unknownB);
+                    if (sizeB > sizeA && containsAll(unknownB, sizeB, unknownA, sizeA)) {
+                        int minesRest = this.view[b] - this.knownMineNeighbors(b) - minesA;
+                        int sizeRest = sizeB - sizeA;
+                        if (minesRest == 0 || minesRest == sizeRest) {
+                            for (int i = 0; i < sizeB; i++) {
+                                if (!contains(unknownA, sizeA, unknownB[i])) {
+                                    this.setStatus(unknownB[i], minesRest == 0 ? SAFE : MINE);
+                                }
+                            }
+                            deduced += sizeRest;
+                        }
+                    }
+                    else if (sizeB > 0 && sizeB < sizeA && containsAll(unknownA, sizeA, unknownB, sizeB)) {
+                        int minesRest = minesA - (this.view[b] - this.knownMineNeighbors(b));
+                        int sizeRest = sizeA - sizeB;
+                        if (minesRest == 0 || minesRest == sizeRest) {
+                            for (int i = 0; i < sizeA; i++) {
+                                if (!contains(unknownB, sizeB, unknownA[i])) {
+                                    this.setStatus(unknownA[i], minesRest == 0 ? SAFE : MINE);
+                                }
+                            }
+                            deduced += sizeRest;
+                            // A's unknowns changed, it was queued again
+                            break search;
+                        }
+                    }
+                }
+            }
+        }
+
+        // global mine count: once every mine is known the rest is safe, and once
+        // every unknown cell must be a mine they all are
+        if (this.unknownCount > 0
+                && (this.knownMines == this.nMines || this.unknownCount == this.nMines - this.knownMines)) {
+            byte value = this.knownMines == this.nMines ? SAFE : MINE;
+            for (int index = 0; index < this.view.length; index++) {
+                if (this.view[index] == UNKNOWN) {
+                    this.setStatus(index, value);
+                    deduced++;
+                }
+            }
+        }
+
+        return deduced;
+    }
+
+    // collect the unknown neighbors of a cell, return how many there are
+    private int unknownNeighbors(int index, int[] out) {
+        int row = index / this.width;
+        int col = index - row * this.width;
+        int n = 0;
+        for (int r = Math.max(0, row - 1); r <= Math.min(this.height - 1, row + 1); r++) {
+            for (int c = Math.max(0, col - 1); c <= Math.min(this.width - 1, col + 1); c++) {
+                int neighbor = r * this.width + c;
+                if (this.view[neighbor] == UNKNOWN) {
+                    out[n++] = neighbor;
+                }
+            }
+        }
+        return n;
+    }
+
+    private int knownMineNeighbors(int index) {
+        int row = index / this.width;
+        int col = index - row * this.width;
+        int n = 0;
+        for (int r = Math.max(0, row - 1); r <= Math.min(this.height - 1, row + 1); r++) {
+            for (int c = Math.max(0, col - 1); c <= Math.min(this.width - 1, col + 1); c++) {
+                byte value = this.view[r * this.width + c];
+                if (value == FLAG || value == MINE) {
+                    n++;
+                }
+            }
+        }
+        return n;
+    }
+
+    private static boolean contains(int[] values, int size, int value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsAll(int[] values, int size, int[] subset, int subsetSize) {
+        for (int i = 0; i < subsetSize; i++) {
+            if (!contains(values, size, subset[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // return the probability that a cell is a mine, as of the last call to
+    // computeProbabilities (revealed cells are 0)
+    public double getProbability(int index) {
+        byte value = this.view[index];
+        if (value == FLAG || value == MINE || value == EXPLODED) {
+            return 1;
+        }
+        else if (value != UNKNOWN) {
+            return 0;
+        }
+        else if (this.componentOf[index] >= 0) {
+            return this.components.get(this.componentOf[index]).probability[this.localOf[index]];
+        }
+        else {
+            return this.interiorProbability;
+        }
+    }
+
+    // whether a cell was part of a frontier component in the last call to
+    // computeProbabilities, the other unknown cells have the interior probability
+    boolean isFrontier(int index) {
+        return this.componentOf[index] >= 0;
+    }
+
+    // collect every cell whose probability differs from the interior's, in no
+    // order: the cells of the frontier components of the last call to
+    // computeProbabilities and the covered cells deduced safe or mine. this walks
+    // the frontier and the deductions only, never the whole board
+    void collectAnalyzed(IntStack out) {
+        for (Component component : this.components) {
+            for (int cell : component.cells) {
+                out.push(cell);
+            }
+        }
+
+        // forget the deductions that were revealed since
+        int[] deduced = this.deduced.values();
+        int kept = 0;
+        for (int i = 0; i < this.deduced.size(); i++) {
+            int cell = deduced[i];
+            if (this.view[cell] == SAFE || this.view[cell] == MINE) {
+                deduced[kept++] = cell;
+                out.push(cell);
+            }
+        }
+        while (this.deduced.size() > kept) {
+            this.deduced.pop();
+        }
+    }
+
+    // set the number of enumeration steps a component may take before it is
+    // approximated, from the next component enumerated on
+    void setEnumerationBudget(long steps) {
+        this.enumerationBudget = steps;
+    }
+
+    // whether every probability of the last call to computeProbabilities is
+    // exact, no component ran out of enumeration budget
+    boolean isExact() {
+        for (Component component : this.components) {
+            if (component.approximate != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // the probability of every unknown cell away from the frontier, as of the last
+    // call to computeProbabilities
+    double getInteriorProbability() {
+        return this.interiorProbability;
+    }
+
+    // return the unknown cell least likely to be a mine, -1 if there is none
+    // (computes probabilities if they are stale)
+    public int bestGuess() {
+        if (this.probabilitiesStale) {
+            this.computeProbabilities();
+        }
+
+        int best = -1;
+        double bestProbability = 2;
+        for (Component component : this.components) {
+            for (int i = 0; i < component.cells.length; i++) {
+                if (component.probability[i] < bestProbability) {
+                    bestProbability = component.probability[i];
+                    best = component.cells[i];
+                }
+            }
+        }
+
+        int interior = this.unknownCount - this.frontierCount();
+        if (interior > 0 && this.interiorProbability < bestProbability) {
+            // any interior cell is as good as any other, continue from the last one
+            for (int i = 0; i < this.view.length; i++) {
+                int index = (this.interiorCursor + i) % this.view.length;
+                if (this.view[index] == UNKNOWN && !this.frontier[index]) {
+                    this.interiorCursor = index;
+                    return index;
+                }
+            }
+        }
+
+        return best;
+    }
+
+    private int frontierCount() {
+        int count = 0;
+        for (Component component : this.components) {
+            count += component.cells.length;
+        }
+        return count;
+    }
+
+    // recompute mine probabilities of every unknown cell
+    // only the components near cells that changed since the last call are
+    // enumerated again. if the calling thread is interrupted the computation stops
+    // with a CancellationException and the next call starts it over
+    public void computeProbabilities() {
+        if (!this.probabilitiesStale) {
+            return;
+        }
+
+        // drop every component that has a cell within reach of a change
+        boolean[] dropped = new boolean[this.components.size()];
+        IntStack seeds = new IntStack();
+        for (int i = 0; i < this.changedSinceProbabilities.size(); i++) {
+            int index = this.changedSinceProbabilities.get(i);
+            int row = index / this.width;
+            int col = index - row * this.width;
+            for (int r = Math.max(0, row - 2); r <= Math.min(this.height - 1, row + 2); r++) {
+                for (int c = Math.max(0, col - 2); c <= Math.min(this.width - 1, col + 2); c++) {
+                    int cell = r * this.width + c;
+                    int id = this.componentOf[cell];
+                    if (id >= 0 && !dropped[id]) {
+                        dropped[id] = true;
+                        for (int member : this.components.get(id).cells) {
+                            seeds.push(member);
+                        }
+                    }
+                    if (this.frontier[cell]) {
+                        seeds.push(cell);
+                    }
+                }
+            }
+        }
+
+        List<Component> kept = new ArrayList<>();
+        for (int id = 0; id < this.components.size(); id++) {
+            if (!dropped[id]) {
+                kept.add(this.components.get(id));
+            } else {
+                for (int member : this.components.get(id).cells) {
+                    this.componentOf[member] = -1;
+                }
+            }
+        }
+
+        // rebuild components from the seeds by walking shared constraints, breadth
+        // first: neighboring cells end up close together in the enumeration order,
+        // so their constraints are checked early and prune more
+        List<Component> rebuilt = new ArrayList<>();
+        IntStack members = new IntStack();
+        try {
+            for (int s = 0; s < seeds.size(); s++) {
+                int seed = seeds.get(s);
+                if (!this.frontier[seed] || this.componentOf[seed] != -1) {
+                    continue;
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("The probability computation was cancelled.");
+                }
+
+                members.clear();
+                members.push(seed);
+                this.componentOf[seed] = -2;
+                for (int m = 0; m < members.size(); m++) {
+                    this.forEachConstraintNeighbor(members.get(m), members);
+                }
+
+                rebuilt.add(this.enumerate(members));
+            }
+        } catch (CancellationException e) {
+            // put the previous components back, the changes stay queued
+            for (Component component : rebuilt) {
+                for (int cell : component.cells) {
+                    this.componentOf[cell] = -1;
+                }
+            }
+            for (int i = 0; i < members.size(); i++) {
+                this.componentOf[members.get(i)] = -1;
+            }
+            this.indexComponents();
+            throw e;
+        }
+
+        this.components.clear();
+        this.components.addAll(kept);
+        this.components.addAll(rebuilt);
+        this.indexComponents();
+        this.changedSinceProbabilities.clear();
+
+        this.combine();
+        this.probabilitiesStale = false;
+    }
+
+    // point every component cell at its component and its index in it
+    private void indexComponents() {
+        for (int id = 0; id < this.components.size(); id++) {
+            int[] cells = this.components.get(id).cells;
+            for (int i = 0; i < cells.length; i++) {
+                this.componentOf[cells[i]] = id;
+                this.localOf[cells[i]] = i;
+            }
+        }
+    }
+
+    // push every frontier cell that shares a revealed number with cell and has
+    // not been walked yet
+    private void forEachConstraintNeighbor(int cell, IntStack walk) {
+        int row = cell / this.width;
+        int col = cell - row * this.width;
+        for (int r = Math.max(0, row - 2); r <= Math.min(this.height - 1, row + 2); r++) {
+            for (int c = Math.max(0, col - 2); c <= Math.min(this.width - 1, col + 2); c++) {
+                int other = r * this.width + c;
+                if (!this.frontier[other] || this.componentOf[other] != -1) {
+                    continue;
+                }
+
+                // the two cells share a number if one touches both
+                boolean shared = false;
+                for (int nr = Math.max(Math.max(0, row - 1), r - 1); nr <= Math.min(Math.min(this.height - 1, row + 1), r + 1) && !shared; nr++) {
+                    for (int nc = Math.max(Math.max(0, col - 1), c - 1); nc <= Math.min(Math.min(this.width - 1, col + 1), c + 1); nc++) {
+                        if (this.view[nr * this.width + nc] <= 8) {
+                            shared = true;
+                            break;
+                        }
+                    }
+                }
+
+                if (shared) {
+                    this.componentOf[other] = -2;
+                    walk.push(other);
+                }
+            }
+        }
+    }
+
+    // count the mine assignments of one component that satisfy its constraints,
+    // by number of mines
+    private Component enumerate(IntStack members) {
+        int n = members.size();
+        int[] cells = new int[n];
+        for (int i = 0; i < n; i++) {
+            cells[i] = members.get(i);
+            this.localOf[cells[i]] = i;
+        }
+
+        // the constraints are the revealed numbers touching the component
+        IntStack numbers = new IntStack();
+        for (int cell : cells) {
+            int row = cell / this.width;
+            int col = cell - row * this.width;
+            for (int r = Math.max(0, row - 1); r <= Math.min(this.height - 1, row + 1); r++) {
+                for (int c = Math.max(0, col - 1); c <= Math.min(this.width - 1, col + 1); c++) {
+                    int number = r * this.width + c;
+                    if (this.view[number] <= 8 && !this.marked[number]) {
+                        this.marked[number] = true;
+                        numbers.push(number);
+                    }
+                }
+            }
+        }
+
+        int[] required = new int[numbers.size()];
+        int[] unassigned = new int[numbers.size()];
+        int[][] constraintsOf = new int[n][];
+        int[] constraintCount = new int[n];
+        int[][] scratch = new int[n][8];
+        for (int j = 0; j < numbers.size(); j++) {
+            int number = numbers.get(j);
+            this.marked[number] = false;
+            required[j] = this.view[number] - this.knownMineNeighbors(number);
+
+            int row = number / this.width;
+            int col = number - row * this.width;
+            for (int r = Math.max(0, row - 1); r <= Math.min(this.height - 1, row + 1); r++) {
+                for (int c = Math.max(0, col - 1); c <= Math.min(this.width - 1, col + 1); c++) {
+                    int cell = r * this.width + c;
+                    if (this.view[cell] == UNKNOWN) {
+                        int local = this.localOf[cell];
+                        scratch[local][constraintCount[local]++] = j;
+                        unassigned[j]++;
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            constraintsOf[i] = Arrays.copyOf(scratch[i], constraintCount[i]);
+        }
+
+        int maxMines = Math.min(n, this.minesLeft());
+        Component component = new Component(cells, maxMines);
+
+        AtomicLong budget = new AtomicLong(this.enumerationBudget);
+        Enumeration root = new Enumeration(constraintsOf, required, unassigned, maxMines, 0, 0, new boolean[n],
+                Thread.currentThread(), budget);
+        Enumeration result = n > PARALLEL_CELLS ? ForkJoinPool.commonPool().invoke(root) : root.compute();
+        if (budget.get() >= 0) {
+            component.setCounts(result.weight, result.cellWeight);
+            return component;
+        }
+
+        // out of budget: spread each number's mines over its cells
+        double[] density = new double[n];
+        for (int i = 0; i < n; i++) {
+            for (int j : constraintsOf[i]) {
+                density[i] = Math.max(density[i], (double) Math.max(0, required[j]) / unassigned[j]);
+            }
+        }
+        component.setApproximate(density);
+        return component;
+    }
+
+    // combine the components with the cells away from the frontier, weighting
+    // every total of frontier mines by the ways to place the remaining mines
+    // in the interior
+    private void combine() {
+        int interior = this.unknownCount - this.frontierCount();
+        int minesLeft = this.minesLeft();
+        int maxTotal = 0;
+        for (Component component : this.components) {
+            maxTotal += component.maxMines();
+        }
+        maxTotal = Math.max(0, Math.min(maxTotal, minesLeft));
+
+        // g(t) is the number of ways to place minesLeft - t mines in the
+        // interior, in log space relative to its largest value
+        double[] logG = new double[maxTotal + 1];
+        double maxLogG = Double.NEGATIVE_INFINITY;
+        for (int t = 0; t <= maxTotal; t++) {
+            logG[t] = logChoose(interior, minesLeft - t);
+            maxLogG = Math.max(maxLogG, logG[t]);
+        }
+        double[] g = new double[maxTotal + 1];
+        for (int t = 0; t <= maxTotal && maxLogG > Double.NEGATIVE_INFINITY; t++) {
+            g[t] = Math.exp(logG[t] - maxLogG);
+        }
+
+        // backward messages: backward[j][t] is the weight of components j.. given
+        // t frontier mines before them
+        int count = this.components.size();
+        double[][] backward = new double[count + 1][];
+        backward[count] = g;
+        for (int j = count - 1; j >= 0; j--) {
+            double[] weight = this.components.get(j).weight;
+            double[] next = backward[j + 1];
+            double[] message = new double[maxTotal + 1];
+            for (int t = 0; t <= maxTotal; t++) {
+                double sum = 0;
+                for (int k = 0; k < weight.length && t + k <= maxTotal; k++) {
+                    sum += weight[k] * next[t + k];
+                }
+                message[t] = sum;
+            }
+            backward[j] = normalize(message);
+        }
+
+        // forward pass: forward[s] is the weight of the components before j with
+        // s mines, each component's cells are weighted by what surrounds it
+        double[] forward = new double[maxTotal + 1];
+        forward[0] = 1;
+        for (int j = 0; j < count; j++) {
+            Component component = this.components.get(j);
+            double[] next = backward[j + 1];
+
+            double[] around = new double[component.weight.length];
+            for (int k = 0; k < around.length; k++) {
+                double sum = 0;
+                for (int s = 0; s + k <= maxTotal; s++) {
+                    sum += forward[s] * next[s + k];
+                }
+                around[k] = sum;
+            }
+            component.weigh(around);
+
+            double[] shifted = new double[maxTotal + 1];
+            for (int s = 0; s <= maxTotal; s++) {
+                if (forward[s] == 0) {
+                    continue;
+                }
+                for (int k = 0; k < component.weight.length && s + k <= maxTotal; k++) {
+                    shifted[s + k] += forward[s] * component.weight[k];
+                }
+            }
+            forward = normalize(shifted);
+        }
+
+        // every interior cell has the same chance: the expected interior mines
+        // spread over the interior
+        double total = 0;
+        double expected = 0;
+        for (int s = 0; s <= maxTotal; s++) {
+            double weight = forward[s] * g[s];
+            total += weight;
+            expected += weight * (minesLeft - s);
+        }
+        this.interiorProbability = interior > 0 && total > 0 ? expected / total / interior : 0;
+    }
+
+    // mines not known yet, never negative: the player may place more flags than
+    // there are mines, the board then has no mines left to place
+    private int minesLeft() {
+        return Math.max(0, this.nMines - this.knownMines);
+    }
+
+    private static double[] normalize(double[] values) {
+        double max = 0;
+        for (double value : values) {
+            max = Math.max(max, value);
+        }
+        if (max > 0) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] /= max;
+            }
+        }
+        return values;
+    }
+
+    // log of n choose k, -infinity if there is no way to choose
+    private static double logChoose(int n, int k) {
+        if (k < 0 || k > n) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        k = Math.min(k, n - k);
+        double sum = 0;
+        for (int i = 0; i < k; i++) {
+            sum += Math.log((double) (n - i) / (k - i));
+        }
+        return sum;
+    }
+
+    // one frontier component: its cells, the (scaled) number of valid assignments
+    // with k mines, and how many of those put a mine in each cell
+    private static class Component {
+        final int[] cells;
+        final double[] probability;
+        double[] weight;
+        double[][] cellWeight;
+        double[] approximate;
+
+        Component(int[] cells, int maxMines) {
+            this.cells = cells;
+            this.probability = new double[cells.length];
+        }
+
+        int maxMines() {
+            return this.weight.length - 1;
+        }
+
+        // an approximate component contributes its expected mines only
+        void setApproximate(double[] density) {
+            this.approximate = density;
+            double expected = 0;
+            for (double d : density) {
+                expected += d;
+            }
+            this.weight = new double[(int) Math.round(expected) + 1];
+            this.weight[this.weight.length - 1] = 1;
+            System.arraycopy(density, 0, this.probability, 0, density.length);
+        }
+
+        void setCounts(double[] weight, double[][] cellWeight) {
+            // scale so the largest count is 1, only ratios matter
+            double max = 0;
+            for (double w : weight) {
+                max = Math.max(max, w);
+            }
+            int last = weight.length - 1;
+            while (last > 0 && weight[last] == 0) {
+                last--;
+            }
+
+            this.weight = new double[last + 1];
+            this.cellWeight = new double[last + 1][];
+            for (int k = 0; k <= last; k++) {
+                this.weight[k] = max > 0 ? weight[k] / max : 0;
+                this.cellWeight[k] = cellWeight[k];
+                if (max > 0) {
+                    for (int i = 0; i < this.cellWeight[k].length; i++) {
+                        this.cellWeight[k][i] /= max;
+                    }
+                }
+            }
+        }
+
+        // turn the counts into probabilities, given the weight of the rest of the
+        // board for every number of mines in this component
+        void weigh(double[] around) {
+            if (this.approximate != null) {
+                return;
+            }
+
+            double total = 0;
+            for (int k = 0; k < this.weight.length; k++) {
+                total += this.weight[k] * around[k];
+            }
+            for (int i = 0; i < this.cells.length; i++) {
+                double mine = 0;
+                for (int k = 0; k < this.weight.length; k++) {
+                    mine += this.cellWeight[k][i] * around[k];
+                }
+                this.probability[i] = total > 0 ? mine / total : 0;
+            }
+        }
+    }
+
+    // backtracking over the cells of a component, counting valid assignments
+    // the first SPLIT_DEPTH cells of a large component fork into parallel tasks,
+    // every task stops once the thread that started the enumeration is interrupted,
+    // and once the tasks together have used up the budget (left negative)
+    private static class Enumeration extends RecursiveTask<Enumeration> {
+    private static final long serialVersionUID = 1L;
+
+        private final int[][] constraintsOf;
+        private final int[] required;
+        private final int[] initialUnassigned;
+        private final int[] unassigned;
+        private final int[] assignedMines;
+        private final int maxMines;
+        private final int start;
+        private final int startMines;
+        private final boolean[] mine;
+        // the cells assigned a mine so far, in order
+        private final int[] mineCells;
+        private final Thread caller;
+        private final AtomicLong budget;
+        private int steps;
+        private boolean overBudget;
+
+        final double[] weight;
+        final double[][] cellWeight;
+
+        Enumeration(int[][] constraintsOf, int[] required, int[] unassigned, int maxMines, int start,
+                int startMines, boolean[] mine, Thread caller, AtomicLong budget) {
+            this.constraintsOf = constraintsOf;
+            this.required = required;
+            this.initialUnassigned = unassigned;
+            this.unassigned = unassigned.clone();
+            this.assignedMines = new int[required.length];
+            this.maxMines = maxMines;
+            this.start = start;
+            this.startMines = startMines;
+            this.mine = mine.clone();
+            this.mineCells = new int[mine.length];
+            this.caller = caller;
+            this.budget = budget;
+
+            this.weight = new double[Math.max(0, maxMines) + 1];
+            this.cellWeight = new double[this.weight.length][mine.length];
+        }
+
+        @Override
+        protected Enumeration compute() {
+            // replay the assignment this task starts from
+            int mines = 0;
+            for (int i = 0; i < this.start; i++) {
+                if (this.mine[i]) {
+                    this.mineCells[mines++] = i;
+                }
+                for (int j : this.constraintsOf[i]) {
+                    this.unassigned[j]--;
+                    if (this.mine[i]) {
+                        this.assignedMines[j]++;
+                    }
+                }
+            }
+
+            int n = this.mine.length;
+            if (this.start < SPLIT_DEPTH && n > PARALLEL_CELLS) {
+                List<Enumeration> forks = new ArrayList<>();
+                for (int value = 0; value <= 1; value++) {
+                    if (this.assign(this.start, value == 1)) {
+                        this.mine[this.start] = value == 1;
+                        forks.add(new Enumeration(this.constraintsOf, this.required, this.initialUnassigned,
+                                this.maxMines, this.start + 1, this.startMines + value, this.mine, this.caller,
+                                this.budget));
+                    }
+                    this.unassign(this.start, value == 1);
+                }
+                this.mine[this.start] = false;
+
+                invokeAll(forks);
+                for (Enumeration fork : forks) {
+                    this.merge(fork.join());
+                }
+                return this;
+            }
+
+            this.search(this.start, this.startMines);
+            return this;
+        }
+
+        private void search(int i, int mines) {
+            if (mines > this.maxMines || this.overBudget) {
+                return;
+            }
+            if ((++this.steps & CANCEL_CHECK_MASK) == 0) {
+                if (this.caller.isInterrupted()) {
+                    throw new CancellationException("The probability computation was cancelled.");
+                }
+                // the shared budget is only touched once every few thousand steps
+                this.overBudget = this.budget.addAndGet(-(CANCEL_CHECK_MASK + 1)) < 0;
+            }
+            if (i == this.mine.length) {
+                this.weight[mines]++;
+                double[] cellWeight = this.cellWeight[mines];
+                for (int m = 0; m < mines; m++) {
+                    cellWeight[this.mineCells[m]]++;
+                }
+                return;
+            }
+
+            for (int value = 0; value <= 1; value++) {
+                boolean isMine = value == 1;
+                if (this.assign(i, isMine)) {
+                    this.mine[i] = isMine;
+                    this.mineCells[mines] = i;
+                    this.search(i + 1, mines + value);
+                }
+                this.unassign(i, isMine);
+            }
+            this.mine[i] = false;
+        }
+
+        // assign cell i and check that its constraints can still be met
+        private boolean assign(int i, boolean isMine) {
+            boolean valid = true;
+            for (int j : this.constraintsOf[i]) {
+                this.unassigned[j]--;
+                if (isMine) {
+                    this.assignedMines[j]++;
+                }
+                if (this.assignedMines[j] > this.required[j]
+                        || this.assignedMines[j] + this.unassigned[j] < this.required[j]) {
+                    valid = false;
+                }
+            }
+            return valid;
+        }
+
+        private void unassign(int i, boolean isMine) {
+            for (int j : this.constraintsOf[i]) {
+                this.unassigned[j]++;
+                if (isMine) {
+                    this.assignedMines[j]--;
+                }
+            }
+        }
+
+        private void merge(Enumeration other) {
+            for (int k = 0; k < this.weight.length; k++) {
+                this.weight[k] += other.weight[k];
+                for (int c = 0; c < this.mine.length; c++) {
+                    this.cellWeight[k][c] += other.cellWeight[k][c];
+                }
+            }
+        }
+    }
+}
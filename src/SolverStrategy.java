@@ -0,0 +1,27 @@
+package src;
+
+// plays every deduced safe cell, and the cell least likely to be a mine when
+// nothing is certain
+public class SolverStrategy implements Strategy {
+    private Board board;
+    private Solver solver;
+
+    @Override
+    public void newGame(Board board) {
+        // keep one solver per board, listening to every change
+        if (this.board != board) {
+            this.board = board;
+            this.solver = new Solver(board);
+            board.addBoardListener(this.solver);
+        } else {
+            this.solver.reset(board);
+        }
+    }
+
+    @Override
+    public int nextMove(Board board) {
+        this.solver.deduce();
+        int safe = this.solver.nextSafe();
+        return safe >= 0 ? safe : this.solver.bestGuess();
+    }
+}
@@ -0,0 +1,418 @@
+package src;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+// a stats store keeps every finished game in an append-only file and answers
+// "best times" and win rate queries per board configuration (height, width,
+// mines) from an in-memory index
+//
+// records are fixed-width and encoded into a direct buffer, which is appended to
+// the file when it is full or flushed. opening a store maps the file and scans
+// every record to rebuild the index, a record cut off at the end (the program
+// died while writing it) is dropped.
+//
+// several programs may keep the same file open (the GUI and the terminal game
+// both default to ~/.coffeesweeper-stats): opening and every append hold an
+// exclusive lock on the file, and an append first indexes the records the
+// others added since, then writes at the real end of the file.
+//
+// per configuration the index keeps the game
+// and win counts, and the durations of the games won: a sorted array plus a
+// short unsorted tail of recent wins, merged in once it grows past a fraction of
+// the array, so recording stays cheap and a query only sorts the tail.
+//
+// java -cp coffeesweeper.jar src.StatsStore stats.css [height width mines] [--top n]
+//
+// header layout (big-endian):
+// 0  : magic "CSST"
+// 4  : format version
+//
+// record layout (big-endian):
+// 0  : height
+// 4  : width
+// 8  : number of mines
+// 12 : outcome (OUTCOME_LOST, OUTCOME_WON or OUTCOME_ABANDONED)
+// 13 : duration in nanoseconds
+// 21 : seed
+// 29 : clicks
+public class StatsStore implements Closeable {
+    static final int MAGIC = 0x43535354; // "CSST"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 8;
+    static final int RECORD_BYTES = 4 + 4 + 4 + 1 + 8 + 8 + 4;
+
+    public static final byte OUTCOME_LOST = 0;
+    public static final byte OUTCOME_WON = 1;
+    public static final byte OUTCOME_ABANDONED = 2;
+
+    private static final int BUFFER_BYTES = RECORD_BYTES * 2048;
+    // records mapped at a time when the file is scanned
+    private static final int RECORDS_PER_MAP = (1 << 30) / RECORD_BYTES;
+    // the unsorted tail of won durations is merged once it is this long, or a
+    // sixteenth of the sorted array
+    private static final int MERGE_MIN = 1024;
+
+    // the store of the interactive games, opened on first use (see shared)
+    private static StatsStore shared;
+    private static boolean sharedFailed;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    // the end of the last whole record indexed, the next buffer goes there unless
+    // another program appended since
+    private long end;
+    private long records;
+    private final Map<Configuration, Configuration> index = new HashMap<>();
+    private boolean closed;
+
+    // open the store at path, creating it if needed, and index every record in it
+    public StatsStore(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            FileLock lock = this.channel.lock();
+            try {
+                long size = this.channel.size();
+                if (size == 0) {
+                    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                    header.putInt(MAGIC).putInt(VERSION);
+                    header.flip();
+                    while (header.hasRemaining()) {
+                        this.channel.write(header, header.position());
+                    }
+                    size = HEADER_BYTES;
+                }
+                if (size < HEADER_BYTES) {
+                    throw new IOException("Not a Coffeesweeper stats file.");
+                }
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                while (header.hasRemaining()) {
+                    if (this.channel.read(header, header.position()) < 0) {
+                        break;
+                    }
+                }
+                header.flip();
+                if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                    throw new IOException("Not a Coffeesweeper stats file.");
+                }
+                int version = header.getInt();
+                if (version != VERSION) {
+                    throw new IOException("Unsupported stats file version " + version + ".");
+                }
+
+                this.end = HEADER_BYTES;
+                this.catchUp(false);
+                for (Configuration configuration : this.index.values()) {
+                    configuration.merge();
+                }
+            } finally {
+                lock.release();
+            }
+        } catch (IOException | RuntimeException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    // the store every game played in this program records to, at
+    // -Dcoffeesweeper.stats=<file> or ~/.coffeesweeper-stats. it is flushed and
+    // closed on exit, null if it could not be opened
+    public static synchronized StatsStore shared() {
+        if (shared == null && !sharedFailed) {
+            String file = System.getProperty("coffeesweeper.stats");
+            Path path = file != null ? Paths.get(file) : Paths.get(System.getProperty("user.home"),
+                    ".coffeesweeper-stats");
+            try {
+                StatsStore store = new StatsStore(path);
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        store.close();
+                    } catch (IOException e) {
+                        System.err.println("Could not write the game statistics: " + e.getMessage());
+                    }
+                }));
+                shared = store;
+            } catch (IOException e) {
+                System.err.println("Game statistics disabled: " + e.getMessage());
+                sharedFailed = true;
+            }
+        }
+        return shared;
+    }
+
+    // record a finished game, it reaches the file once the buffer fills up or is
+    // flushed, and the index right away
+    public synchronized void record(int height, int width, int nMines, byte outcome, long nanos, long seed,
+            int clicks) throws IOException {
+        if (this.closed) {
+            throw new IllegalStateException("The stats store is closed.");
+        }
+        if (this.buffer.remaining() < RECORD_BYTES) {
+            this.flush();
+        }
+        this.buffer.putInt(height).putInt(width).putInt(nMines).put(outcome).putLong(nanos).putLong(seed)
+                .putInt(clicks);
+        this.add(height, width, nMines, outcome, nanos, true);
+        this.records++;
+    }
+
+    // append the buffered records to the file. if that fails, the part written
+    // is taken back and every record stays buffered for the next flush
+    public synchronized void flush() throws IOException {
+        if (this.buffer.position() == 0) {
+            return;
+        }
+
+        this.buffer.flip();
+        try {
+            FileLock lock = this.channel.lock();
+            try {
+                this.catchUp(true);
+                long start = this.end;
+                try {
+                    while (this.buffer.hasRemaining()) {
+                        this.end += this.channel.write(this.buffer, this.end);
+                    }
+                } catch (IOException e) {
+                    this.buffer.rewind();
+                    this.end = start;
+                    try {
+                        this.channel.truncate(start);
+                    } catch (IOException truncating) {
+                        // the records written stay in the file, and are written again
+                        e.addSuppressed(truncating);
+                    }
+                    throw e;
+                }
+            } finally {
+                lock.release();
+            }
+        } finally {
+            // empty after a flush, everything back at the front after a failure
+            this.buffer.compact();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        try {
+            this.flush();
+        } finally {
+            this.closed = true;
+            this.channel.close();
+        }
+    }
+
+    // number of games recorded
+    public synchronized long size() {
+        return this.records;
+    }
+
+    // number of games recorded with this configuration
+    public synchronized long getGames(int height, int width, int nMines) {
+        Configuration configuration = this.find(height, width, nMines);
+        return configuration != null ? configuration.games : 0;
+    }
+
+    // number of games won with this configuration
+    public synchronized long getWins(int height, int width, int nMines) {
+        Configuration configuration = this.find(height, width, nMines);
+        return configuration != null ? configuration.wins : 0;
+    }
+
+    // the share of games won with this configuration, 0 if none were played
+    public synchronized double getWinRate(int height, int width, int nMines) {
+        Configuration configuration = this.find(height, width, nMines);
+        return configuration != null && configuration.games > 0
+                ? (double) configuration.wins / configuration.games : 0;
+    }
+
+    // the durations in nanoseconds of the (at most) n fastest games won with this
+    // configuration, fastest first
+    public synchronized long[] getBestTimes(int height, int width, int nMines, int n) {
+        Configuration configuration = this.find(height, width, nMines);
+        return configuration != null ? configuration.best(n) : new long[0];
+    }
+
+    private Configuration find(int height, int width, int nMines) {
+        return this.index.get(new Configuration(height, width, nMines));
+    }
+
+    private void add(int height, int width, int nMines, byte outcome, long nanos, boolean merge) {
+        Configuration key = new Configuration(height, width, nMines);
+        Configuration configuration = this.index.get(key);
+        if (configuration == null) {
+            configuration = key;
+            this.index.put(key, key);
+        }
+        configuration.add(outcome, nanos, merge);
+    }
+
+    // index the whole records between end and the end of the file, and drop a
+    // record cut off after them (its writer died, as writes happen under the
+    // lock). called with the lock held, merge as in Configuration.add
+    private void catchUp(boolean merge) throws IOException {
+        long size = this.channel.size();
+        long whole = HEADER_BYTES + (size - HEADER_BYTES) / RECORD_BYTES * RECORD_BYTES;
+        if (whole > this.end) {
+            this.scan(this.end, (whole - this.end) / RECORD_BYTES, merge);
+        }
+        // (shorter than what was indexed only if something else cut the file,
+        // appending where it ends leaves no gap)
+        this.end = whole;
+        if (size != whole) {
+            this.channel.truncate(whole);
+        }
+    }
+
+    // index count records from position from, a few hundred megabytes mapped at a
+    // time
+    private void scan(long from, long count, boolean merge) throws IOException {
+        for (long first = 0; first < count; first += RECORDS_PER_MAP) {
+            int n = (int) Math.min(RECORDS_PER_MAP, count - first);
+            MappedByteBuffer map = this.channel.map(FileChannel.MapMode.READ_ONLY, from + first * RECORD_BYTES,
+                    (long) n * RECORD_BYTES);
+            for (int i = 0, at = 0; i < n; i++, at += RECORD_BYTES) {
+                this.add(map.getInt(at), map.getInt(at + 4), map.getInt(at + 8), map.get(at + 12),
+                        map.getLong(at + 13), merge);
+            }
+        }
+        this.records += count;
+    }
+
+    // the index entry of one board configuration, also its own key
+    private static final class Configuration {
+        private final int height;
+        private final int width;
+        private final int nMines;
+        private long games;
+        private long wins;
+        // durations of the games won: sorted, and recent ones not merged in yet
+        private long[] sorted = new long[0];
+        private long[] recent = new long[16];
+        private int recentCount;
+        private boolean recentSorted = true;
+
+        Configuration(int height, int width, int nMines) {
+            this.height = height;
+            this.width = width;
+            this.nMines = nMines;
+        }
+
+        void add(byte outcome, long nanos, boolean merge) {
+            this.games++;
+            if (outcome != OUTCOME_WON) {
+                return;
+            }
+            this.wins++;
+            if (this.recentCount == this.recent.length) {
+                this.recent = Arrays.copyOf(this.recent, this.recentCount * 2);
+            }
+            this.recent[this.recentCount++] = nanos;
+            this.recentSorted = false;
+            if (merge && this.recentCount >= Math.max(MERGE_MIN, this.sorted.length >>> 4)) {
+                this.merge();
+            }
+        }
+
+        // merge the recent durations into the sorted array
+        void merge() {
+            this.sortRecent();
+            long[] merged = new long[this.sorted.length + this.recentCount];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < this.sorted.length && j < this.recentCount) {
+                merged[k++] = this.sorted[i] <= this.recent[j] ? this.sorted[i++] : this.recent[j++];
+            }
+            System.arraycopy(this.sorted, i, merged, k, this.sorted.length - i);
+            System.arraycopy(this.recent, j, merged, k + this.sorted.length - i, this.recentCount - j);
+            this.sorted = merged;
+            this.recentCount = 0;
+        }
+
+        private void sortRecent() {
+            if (!this.recentSorted) {
+                Arrays.sort(this.recent, 0, this.recentCount);
+                this.recentSorted = true;
+            }
+        }
+
+        // the n shortest durations, taken from the front of both sorted runs
+        long[] best(int n) {
+            this.sortRecent();
+            long[] best = new long[(int) Math.min(n, this.sorted.length + (long) this.recentCount)];
+            int i = 0;
+            int j = 0;
+            for (int k = 0; k < best.length; k++) {
+                if (j == this.recentCount || (i < this.sorted.length && this.sorted[i] <= this.recent[j])) {
+                    best[k] = this.sorted[i++];
+                } else {
+                    best[k] = this.recent[j++];
+                }
+            }
+            return best;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Configuration configuration && configuration.height == this.height
+                    && configuration.width == this.width && configuration.nMines == this.nMines;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.height, this.width, this.nMines);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1 && args.length != 4 && args.length != 6) {
+            System.err.println("usage: StatsStore <file> [height width mines] [--top n]");
+            System.exit(2);
+        }
+
+        long start = System.nanoTime();
+        try (StatsStore store = new StatsStore(Paths.get(args[0]))) {
+            System.out.printf(Locale.ROOT, "%d games, indexed in %.3f ms%n", store.size(),
+                    (System.nanoTime() - start) / 1e6);
+            if (args.length == 1) {
+                return;
+            }
+
+            int height = Integer.parseInt(args[1]);
+            int width = Integer.parseInt(args[2]);
+            int nMines = Integer.parseInt(args[3]);
+            int top = args.length == 6 && args[4].equals("--top") ? Integer.parseInt(args[5]) : 10;
+
+            start = System.nanoTime();
+            long games = store.getGames(height, width, nMines);
+            double winRate = store.getWinRate(height, width, nMines);
+            long[] best = store.getBestTimes(height, width, nMines, top);
+            long nanos = System.nanoTime() - start;
+
+            System.out.printf(Locale.ROOT, "%dx%d, %d mines: %d games, win rate %.3f%% (queried in %.1f us)%n",
+                    height, width, nMines, games, 100 * winRate, nanos / 1e3);
+            for (int i = 0; i < best.length; i++) {
+                System.out.printf(Locale.ROOT, "%3d. %.3f s%n", i + 1, best[i] / 1e9);
+            }
+        }
+    }
+}
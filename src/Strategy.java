@@ -0,0 +1,15 @@
+package src;
+
+// a strategy plays games for the simulator: after the first click has been made,
+// it is asked for one cell to reveal at a time until the game ends
+//
+// a strategy is used by one thread only, and may keep state between games
+public interface Strategy {
+    // called at the start of every game, before the first click
+    // the same board object is reused between games of a thread
+    default void newGame(Board board) {
+    }
+
+    // return the flat index of the next cell to reveal, -1 to give up
+    int nextMove(Board board);
+}
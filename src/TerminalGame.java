@@ -0,0 +1,601 @@
+package src;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// a terminal game plays a board in an ANSI terminal with the keyboard, so the
+// game needs no display and runs fine over SSH
+//
+// java -cp coffeesweeper.jar src.TerminalGame [height] [width] [mines] [--safe] [--no-guess]
+// java -cp coffeesweeper.jar src.TerminalGame --unbounded [--density d]
+//
+// every frame is rendered into one reusable byte buffer and written with a
+// single flush. the game remembers what it last drew in every cell of the
+// screen and only writes the cells whose look changed, jumping the cursor to a
+// cell with an escape sequence unless it directly follows the previous one. a
+// cursor move costs two cells, a flood only the cells it revealed. a board
+// larger than the terminal scrolls to keep the cursor in view.
+//
+// an unbounded game plays a ChunkedBoard instead: the view pages over it as the
+// cursor moves, and only the chunks around where the player has been are ever
+// generated. it can't be won and has no undo, it goes on until a mine is hit and
+// isn't kept in the stats store.
+//
+// keys: arrows, hjkl or wasd move (with shift 10 cells at a time), space or
+// enter reveals a cell or chords a number, f flags, u undoes, r redoes, n starts
+// a new game, ctrl-l redraws everything, q quits
+public class TerminalGame {
+    // what a cell looks like: 0-8 a revealed number, then these, plus CURSOR for
+    // the cell under the cursor
+    private static final int COVERED = 9;
+    private static final int FLAG = 10;
+    private static final int MINE = 11;
+    private static final int CURSOR = 16;
+    private static final int CODES = 32;
+
+    // escape sequences and the bytes to write for every cell code, each cell is
+    // two columns wide: the glyph and a space
+    private static final String ESC = "\033[";
+    private static final byte[][] ATTRIBUTES = new byte[CODES][];
+    private static final byte[][] GLYPHS = new byte[CODES][];
+    private static final String[] NUMBER_ATTRIBUTES = { "0", "34", "32", "31", "1;34", "1;31", "36", "1", "90" };
+
+    static {
+        for (int code = 0; code < CODES; code++) {
+            int look = code & ~CURSOR;
+            String attributes;
+            char glyph;
+            if (look <= 8) {
+                attributes = NUMBER_ATTRIBUTES[look];
+                glyph = look == 0 ? ' ' : (char) ('0' + look);
+            } else if (look == FLAG) {
+                attributes = "1;31";
+                glyph = GameCharset.FLAG.getDisplayChar();
+            } else if (look == MINE) {
+                // the mine of GameCharset is two columns wide in many terminals
+                attributes = "1;41";
+                glyph = '*';
+            } else {
+                attributes = "2";
+                glyph = '.';
+            }
+            if ((code & CURSOR) != 0) {
+                attributes += ";7";
+            }
+            ATTRIBUTES[code] = (ESC + "0;" + attributes + "m").getBytes(StandardCharsets.UTF_8);
+            GLYPHS[code] = (glyph + " ").getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final byte[] ENTER = (ESC + "?1049h" + ESC + "?25l").getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LEAVE = (ESC + "0m" + ESC + "?25h" + ESC + "?1049l").getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CLEAR = (ESC + "0m" + ESC + "2J").getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] RESET = (ESC + "0m").getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CLEAR_LINE = (ESC + "K").getBytes(StandardCharsets.US_ASCII);
+
+    // keys other than plain characters
+    private static final int KEY_UP = 0x10000;
+    private static final int KEY_DOWN = 0x10001;
+    private static final int KEY_RIGHT = 0x10002;
+    private static final int KEY_LEFT = 0x10003;
+    private static final int SHIFT = 0x100000;
+    private static final int CTRL_L = 12;
+    private static final int PAGE = 10;
+    // how long the rest of an escape sequence may lag behind its ESC, a lone ESC
+    // is a key of its own
+    private static final long ESCAPE_WAIT_NANOS = 50_000_000L;
+
+    private final int height;
+    private final int width;
+    private final int nMines;
+    private final boolean safeOpening;
+    private final boolean noGuess;
+    // mine density of an unbounded game, 0 for a board of a fixed size
+    private final double density;
+    private final InputStream in;
+    private final OutputStream out;
+    // whether the size of the screen can be asked from the terminal
+    private final boolean interactive;
+
+    // null until the first reveal of the first game, reused by the next ones
+    private Board board;
+    // the board of an unbounded game, a new one for every game
+    private ChunkedBoard unboundedBoard;
+    // whether the first reveal of the current game placed its mines
+    private boolean started;
+    // no-guess was asked for, but no such board was found in time
+    private boolean mayNeedGuess;
+    private int cursorRow;
+    private int cursorCol;
+    private long startNanos;
+    private long endNanos;
+    // reveals and flags played in this game, kept with its result in the stats
+    // store
+    private int clicks;
+
+    // screen size, and the part of the board on screen
+    private int screenRows;
+    private int screenCols;
+    private int viewRows;
+    private int viewCols;
+    private int top;
+    private int left;
+    // the code last drawn in every cell of the view, -1 if unknown
+    private int[] screen = new int[0];
+    private String status;
+    private boolean clear = true;
+
+    // the frame being rendered, reused for every frame
+    private byte[] frame = new byte[1 << 16];
+    private int length;
+
+    TerminalGame(int height, int width, int nMines, boolean safeOpening, boolean noGuess, InputStream in,
+            OutputStream out, int screenRows, int screenCols, boolean interactive) {
+        this(height, width, nMines, safeOpening, noGuess, 0, in, out, screenRows, screenCols, interactive);
+    }
+
+    // an unbounded game, the cursor starts at (0, 0) in the middle of the view
+    TerminalGame(double density, InputStream in, OutputStream out, int screenRows, int screenCols,
+            boolean interactive) {
+        this(Integer.MAX_VALUE, Integer.MAX_VALUE, 0, true, false, density, in, out, screenRows, screenCols,
+                interactive);
+        if (density < ChunkedBoard.MIN_DENSITY || density >= 1) {
+            throw new IllegalArgumentException("Mine density must be between " + ChunkedBoard.MIN_DENSITY + " and 1.");
+        }
+        this.top = -(this.viewRows / 2);
+        this.left = -(this.viewCols / 2);
+    }
+
+    private TerminalGame(int height, int width, int nMines, boolean safeOpening, boolean noGuess, double density,
+            InputStream in, OutputStream out, int screenRows, int screenCols, boolean interactive) {
+        this.height = height;
+        this.width = width;
+        this.nMines = nMines;
+        this.safeOpening = safeOpening;
+        this.noGuess = noGuess;
+        this.density = density;
+        this.in = in;
+        this.out = out;
+        this.interactive = interactive;
+        if (density == 0) {
+            this.cursorRow = height / 2;
+            this.cursorCol = width / 2;
+        }
+        this.resize(screenRows, screenCols);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int height = 16;
+        int width = 30;
+        int nMines = 99;
+        boolean safeOpening = false;
+        boolean noGuess = false;
+        boolean unbounded = false;
+        double density = 0.2;
+        int position = 0;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--safe" -> safeOpening = true;
+                case "--no-guess" -> noGuess = true;
+                case "--unbounded" -> unbounded = true;
+                case "--density" -> density = Double.parseDouble(args[++i]);
+                default -> {
+                    int value = Integer.parseInt(args[i]);
+                    if (position == 0) {
+                        height = value;
+                    } else if (position == 1) {
+                        width = value;
+                    } else {
+                        nMines = value;
+                    }
+                    position++;
+                }
+            }
+        }
+
+        if (System.console() == null) {
+            System.err.println("The terminal game needs an interactive terminal.");
+            System.exit(2);
+        }
+
+        // raw input: every key arrives at once and isn't echoed, the terminal is
+        // put back however the game ends
+        String saved = stty("-g");
+        OutputStream out = new FileOutputStream(FileDescriptor.out);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                out.write(LEAVE);
+                out.flush();
+                stty(saved);
+            } catch (IOException | InterruptedException e) {
+                // nothing left to do about it on the way out
+            }
+        }));
+        stty("-icanon", "-echo", "min", "1");
+        out.write(ENTER);
+
+        int[] size = terminalSize();
+        TerminalGame game = unbounded
+                ? new TerminalGame(density, System.in, out, size[0], size[1], true)
+                : new TerminalGame(height, width, nMines, safeOpening, noGuess, System.in, out, size[0], size[1], true);
+        game.run();
+    }
+
+    // play until the player quits
+    void run() throws IOException {
+        this.render();
+        int key;
+        while ((key = this.readKey()) >= 0 && key != 'q') {
+            this.handle(key);
+            this.render();
+        }
+        this.recordStats();
+    }
+
+    // apply one key
+    void handle(int key) throws IOException {
+        int step = (key & SHIFT) != 0 ? PAGE : 1;
+        switch (key & ~SHIFT) {
+            case KEY_UP, 'k', 'w' -> this.move(-step, 0);
+            case KEY_DOWN, 'j', 's' -> this.move(step, 0);
+            case KEY_LEFT, 'h', 'a' -> this.move(0, -step);
+            case KEY_RIGHT, 'l', 'd' -> this.move(0, step);
+            case ' ', '\r', '\n' -> this.reveal();
+            case 'f' -> {
+                if (this.playing()) {
+                    if (this.isUnbounded()) {
+                        // right clicking a covered cell toggles its flag
+                        if (!this.unboundedBoard.getRevealed(this.cursorRow, this.cursorCol)) {
+                            this.unboundedBoard.rightClick(this.cursorRow, this.cursorCol);
+                        }
+                    } else {
+                        this.board.toggleFlag(this.cursorRow, this.cursorCol);
+                    }
+                    this.clicks++;
+                }
+            }
+            case 'u' -> {
+                if (this.started && !this.isUnbounded() && this.board.undo()) {
+                    this.endNanos = 0;
+                }
+            }
+            case 'r' -> {
+                if (this.started && !this.isUnbounded() && this.board.redo()) {
+                    this.checkOver();
+                }
+            }
+            case 'n' -> {
+                // the next reveal regenerates the board in place
+                this.recordStats();
+                this.started = false;
+                this.endNanos = 0;
+            }
+            case CTRL_L -> {
+                if (this.interactive) {
+                    int[] size = terminalSize();
+                    this.resize(size[0], size[1]);
+                }
+                this.clear = true;
+            }
+            default -> {
+            }
+        }
+    }
+
+    private boolean isUnbounded() {
+        return this.density > 0;
+    }
+
+    private State state() {
+        return this.isUnbounded() ? this.unboundedBoard.getState() : this.board.getState();
+    }
+
+    private boolean playing() {
+        return this.started && this.state() == State.IN_PROGRESS;
+    }
+
+    private void move(int rows, int cols) {
+        if (this.isUnbounded()) {
+            this.cursorRow += rows;
+            this.cursorCol += cols;
+        } else {
+            this.cursorRow = Math.max(0, Math.min(this.height - 1, this.cursorRow + rows));
+            this.cursorCol = Math.max(0, Math.min(this.width - 1, this.cursorCol + cols));
+        }
+    }
+
+    // reveal the cell under the cursor (the first reveal of a game places the
+    // mines), or chord it if it is a revealed number
+    private void reveal() {
+        int row = this.cursorRow;
+        int col = this.cursorCol;
+        if (!this.started) {
+            long seed = new SplittableRandom().nextLong();
+            if (this.isUnbounded()) {
+                // the first click of a chunked board is its safe opening
+                this.unboundedBoard = new ChunkedBoard(this.density, seed);
+            } else if (this.noGuess) {
+                NoGuessGenerator.Result result = NoGuessGenerator.generate(this.height, this.width, this.nMines,
+                        row, col, seed);
+                this.board = result.getBoard();
+                this.board.setUndoEnabled(true);
+                this.mayNeedGuess = !result.isNoGuess();
+            } else if (this.board != null) {
+                this.board.reset(this.nMines, row, col, seed, this.safeOpening);
+            } else {
+                this.board = new Board(this.height, this.width, this.nMines, row, col, seed, this.safeOpening);
+                this.board.setUndoEnabled(true);
+            }
+            this.started = true;
+            this.startNanos = System.nanoTime();
+            this.clicks = 0;
+        }
+        if (!this.playing()) {
+            return;
+        }
+
+        if (this.isUnbounded()) {
+            if (this.unboundedBoard.getRevealed(row, col)) {
+                this.unboundedBoard.rightClick(row, col);
+            } else {
+                this.unboundedBoard.leftClick(row, col);
+            }
+        } else if (this.board.getRevealed(row * this.width + col)) {
+            this.board.chord(row, col);
+        } else {
+            this.board.leftClick(row, col);
+        }
+        this.clicks++;
+        this.checkOver();
+    }
+
+    private void checkOver() {
+        if (this.state() != State.IN_PROGRESS && this.endNanos == 0) {
+            this.endNanos = System.nanoTime();
+        }
+    }
+
+    // add a game that is over to the stats store when it is left, a lost game
+    // can still be undone until then. the store has no place for an unbounded game
+    private void recordStats() throws IOException {
+        if (!this.started || this.isUnbounded() || this.board.getState() == State.IN_PROGRESS) {
+            return;
+        }
+        StatsStore stats = StatsStore.shared();
+        if (stats != null) {
+            stats.record(this.height, this.width, this.nMines,
+                    this.board.getState() == State.WON ? StatsStore.OUTCOME_WON : StatsStore.OUTCOME_LOST,
+                    this.endNanos - this.startNanos, this.board.getSeed(), this.clicks);
+            stats.flush();
+        }
+    }
+
+    // fit the view into a screen of the given size, the last row is the status
+    private void resize(int screenRows, int screenCols) {
+        this.screenRows = Math.max(2, screenRows);
+        this.screenCols = Math.max(2, screenCols);
+        this.viewRows = Math.min(this.height, this.screenRows - 1);
+        this.viewCols = Math.min(this.width, this.screenCols / 2);
+        this.screen = new int[this.viewRows * this.viewCols];
+        this.clear = true;
+    }
+
+    // write everything that changed since the last frame in a single write
+    void render() throws IOException {
+        this.length = 0;
+        if (this.clear) {
+            this.append(CLEAR);
+            Arrays.fill(this.screen, -1);
+            this.status = null;
+            this.clear = false;
+        }
+
+        // scroll just enough to keep the cursor in view
+        int row = this.cursorRow;
+        int col = this.cursorCol;
+        this.top = Math.max(Math.min(this.top, row), row - this.viewRows + 1);
+        this.left = Math.max(Math.min(this.left, col), col - this.viewCols + 1);
+
+        // the mines of an unbounded board are never all shown
+        boolean over = this.started && !this.isUnbounded() && this.board.getState() != State.IN_PROGRESS;
+        int attributes = -1;
+        int next = -1;
+        for (int r = 0; r < this.viewRows; r++) {
+            for (int c = 0; c < this.viewCols; c++) {
+                boolean cursor = this.top + r == row && this.left + c == col;
+                int code = this.codeOf(this.top + r, this.left + c, over) | (cursor ? CURSOR : 0);
+                int position = r * this.viewCols + c;
+                if (this.screen[position] == code) {
+                    continue;
+                }
+                this.screen[position] = code;
+
+                if (position != next) {
+                    this.moveTo(r, c * 2);
+                }
+                if (code != attributes) {
+                    this.append(ATTRIBUTES[code]);
+                    attributes = code;
+                }
+                this.append(GLYPHS[code]);
+                // at the end of a row the terminal cursor doesn't wrap on its own
+                next = c + 1 < this.viewCols ? position + 1 : -1;
+            }
+        }
+
+        String status = this.statusLine();
+        if (!status.equals(this.status)) {
+            this.status = status;
+            this.moveTo(this.viewRows, 0);
+            this.append(RESET);
+            this.append(status.getBytes(StandardCharsets.UTF_8));
+            this.append(CLEAR_LINE);
+        }
+
+        if (this.length > 0) {
+            this.append(RESET);
+            this.out.write(this.frame, 0, this.length);
+            this.out.flush();
+        }
+    }
+
+    // how a cell looks, once the game is over every cell is shown
+    private int codeOf(int row, int col, boolean over) {
+        if (!this.started) {
+            return COVERED;
+        }
+        int cell = this.isUnbounded()
+                ? this.unboundedBoard.getCell(row, col)
+                : this.board.getCells().get(row * this.width + col);
+        if (!over) {
+            if ((cell & CellGrid.FLAGGED) != 0) {
+                return FLAG;
+            }
+            if ((cell & CellGrid.REVEALED) == 0) {
+                return COVERED;
+            }
+        }
+        return (cell & CellGrid.MINE) != 0 ? MINE : cell & CellGrid.NEIGHBOR_MASK;
+    }
+
+    private String statusLine() {
+        if (this.isUnbounded()) {
+            return this.unboundedStatusLine();
+        }
+        int flags = 0;
+        String state = "press space to start";
+        long seconds = 0;
+        if (this.started) {
+            flags = this.board.getFlags();
+            long end = this.endNanos != 0 ? this.endNanos : System.nanoTime();
+            seconds = (end - this.startNanos) / 1_000_000_000L;
+            state = switch (this.board.getState()) {
+                case WON -> "you won! n: new game, q: quit";
+                case LOST -> "you lost! u: undo, n: new game, q: quit";
+                default -> (this.mayNeedGuess ? "may need a guess! " : "")
+                        + "f: flag, u: undo, n: new game, q: quit";
+            };
+        }
+        String line = String.format(" %d/%d mines  %d s  %s", flags, this.nMines, seconds, state);
+        return line.length() > this.screenCols ? line.substring(0, this.screenCols) : line;
+    }
+
+    private String unboundedStatusLine() {
+        long cells = 0;
+        String state = "press space to start";
+        if (this.started) {
+            cells = this.unboundedBoard.getCellsUncovered();
+            state = this.unboundedBoard.getState() == State.LOST
+                    ? "you lost! n: new game, q: quit"
+                    : "f: flag, n: new game, q: quit";
+        }
+        String line = String.format(" %d cells  at %d,%d  %s", cells, this.cursorRow, this.cursorCol, state);
+        return line.length() > this.screenCols ? line.substring(0, this.screenCols) : line;
+    }
+
+    // jump the terminal cursor to a row and column of the screen (0-based)
+    private void moveTo(int row, int col) {
+        this.append(ESC.getBytes(StandardCharsets.US_ASCII));
+        this.appendNumber(row + 1);
+        this.appendByte(';');
+        this.appendNumber(col + 1);
+        this.appendByte('H');
+    }
+
+    private void append(byte[] bytes) {
+        if (this.length + bytes.length > this.frame.length) {
+            this.frame = Arrays.copyOf(this.frame, Math.max(this.frame.length * 2, this.length + bytes.length));
+        }
+        System.arraycopy(bytes, 0, this.frame, this.length, bytes.length);
+        this.length += bytes.length;
+    }
+
+    private void appendByte(int b) {
+        if (this.length == this.frame.length) {
+            this.frame = Arrays.copyOf(this.frame, this.frame.length * 2);
+        }
+        this.frame[this.length++] = (byte) b;
+    }
+
+    private void appendNumber(int value) {
+        if (value >= 10) {
+            this.appendNumber(value / 10);
+        }
+        this.appendByte('0' + value % 10);
+    }
+
+    // read one key, arrows arrive as ESC [ A-D (ESC [ 1 ; 2 A with shift), -1 at
+    // the end of the input. the terminal sends a sequence in one go, so an ESC
+    // with nothing after it is the escape key, which does nothing
+    private int readKey() throws IOException {
+        int b = this.in.read();
+        if (b != 27) {
+            return Character.isUpperCase(b) ? Character.toLowerCase(b) | SHIFT : b;
+        }
+        if (!this.sequenceFollows() || this.in.read() != '[') {
+            return 0;
+        }
+
+        int modifier = 0;
+        int c;
+        while ((c = this.in.read()) >= 0 && (c == ';' || Character.isDigit(c))) {
+            modifier = c == ';' ? 0 : modifier * 10 + c - '0';
+        }
+        int shift = modifier == 2 ? SHIFT : 0;
+        return switch (c) {
+            case 'A' -> KEY_UP | shift;
+            case 'B' -> KEY_DOWN | shift;
+            case 'C' -> KEY_RIGHT | shift;
+            case 'D' -> KEY_LEFT | shift;
+            default -> 0;
+        };
+    }
+
+    // wait a moment for the rest of an escape sequence, false if none comes
+    private boolean sequenceFollows() throws IOException {
+        long deadline = System.nanoTime() + ESCAPE_WAIT_NANOS;
+        while (this.in.available() == 0) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // the rows and columns of the terminal
+    private static int[] terminalSize() throws IOException {
+        try {
+            String[] size = stty("size").trim().split("\\s+");
+            return new int[] { Integer.parseInt(size[0]), Integer.parseInt(size[1]) };
+        } catch (InterruptedException | RuntimeException e) {
+            return new int[] { 24, 80 };
+        }
+    }
+
+    // run stty on the controlling terminal and return what it printed
+    private static String stty(String... args) throws IOException, InterruptedException {
+        String[] command = new String[args.length + 1];
+        command[0] = "stty";
+        System.arraycopy(args, 0, command, 1, args.length);
+        Process process = new ProcessBuilder(command)
+                .redirectInput(ProcessBuilder.Redirect.from(new File("/dev/tty")))
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.US_ASCII).trim();
+        process.waitFor();
+        return output;
+    }
+}
@@ -0,0 +1,328 @@
+package src;
+
+import java.util.Arrays;
+
+// a topology decides which cells of a board touch each other: the classic grid,
+// a torus whose edges wrap around, a hex grid, or a grid of more dimensions
+//
+// cells are flat indices into a rows x cols raster, the layout every board uses
+// (the layers of a 3d grid are stacked below each other). the neighbors of
+// every cell are worked out once, when the topology is made:
+// - a cell away from the edges has its neighbors at fixed index offsets (a hex
+//   grid has one set of offsets per row parity)
+// - the cells on the edges, marked in a bitmap, have their neighbors listed in
+//   a CSR table: the neighbors of the i-th edge cell are
+//   borderNeighbors[borderStart[i] .. borderStart[i + 1])
+// so listing the neighbors of a cell is a copy, with no bounds checks per
+// neighbor and nothing to call back
+public final class Topology {
+    // the most neighbors a cell can have, its count has to fit in a cell
+    static final int MAX_NEIGHBORS = CellGrid.NEIGHBOR_MASK;
+
+    private static final int CLASSIC = 0;
+    private static final int TORUS = 1;
+    private static final int HEX = 2;
+    private static final int GRID = 3;
+
+    private final int kind;
+    private final int rows;
+    private final int cols;
+    // size of every dimension, outermost first (the last one is cols)
+    private final int[] dims;
+    private final int maxNeighbors;
+
+    // neighbor offsets of the cells away from the edges, one set per row parity
+    // on a hex grid
+    private final int[][] offsets;
+    // one bit per cell, set for the cells listed in the CSR table
+    private final long[] borderBits;
+    private final int[] border;
+    private final int[] borderStart;
+    private final int[] borderNeighbors;
+
+    private Topology(int kind, int[] dims) {
+        long size = 1;
+        for (int dim : dims) {
+            if (dim <= 0) {
+                throw new IllegalArgumentException("Every dimension of a board needs at least one cell.");
+            }
+            size *= dim;
+        }
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Board is too large to store in a single grid.");
+        }
+
+        this.kind = kind;
+        this.dims = dims.clone();
+        this.cols = dims[dims.length - 1];
+        this.rows = (int) (size / this.cols);
+
+        // offsets of the cells away from the edges, they hold for every cell whose
+        // coordinates are all in [1, dim - 2]
+        if (kind == HEX) {
+            // odd rows are shifted right by half a cell
+            this.offsets = new int[][] {
+                    { -this.cols - 1, -this.cols, -1, 1, this.cols - 1, this.cols },
+                    { -this.cols, -this.cols + 1, -1, 1, this.cols, this.cols + 1 } };
+        } else {
+            this.offsets = new int[][] { mooreOffsets(dims) };
+        }
+        this.maxNeighbors = this.offsets[0].length;
+        if (this.maxNeighbors > MAX_NEIGHBORS) {
+            throw new IllegalArgumentException("A cell can touch at most " + MAX_NEIGHBORS + " others.");
+        }
+
+        // mark the edge cells, then list their neighbors the slow way
+        this.borderBits = new long[(int) ((size + 63) >>> 6)];
+        int borderCount = dims.length == 2 ? this.markEdges2d() : this.markEdges();
+
+        this.border = new int[borderCount];
+        this.borderStart = new int[borderCount + 1];
+        int[] coords = new int[dims.length];
+        int[] neighbors = new int[this.maxNeighbors];
+        int[] listed = new int[borderCount * this.maxNeighbors];
+        int total = 0;
+        int slot = 0;
+        for (int word = 0; word < this.borderBits.length; word++) {
+            for (long bits = this.borderBits[word]; bits != 0; bits &= bits - 1) {
+                int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+                int count = this.collectNeighbors(index, coords, neighbors);
+                System.arraycopy(neighbors, 0, listed, total, count);
+                this.border[slot] = index;
+                total += count;
+                this.borderStart[++slot] = total;
+            }
+        }
+        this.borderNeighbors = Arrays.copyOf(listed, total);
+    }
+
+    // the usual board: every cell touches the 8 around it, inside the board
+    public static Topology classic(int height, int width) {
+        return new Topology(CLASSIC, new int[] { height, width });
+    }
+
+    // the edges wrap around: the left column touches the right one and the top
+    // row touches the bottom one, so every cell has 8 neighbors
+    public static Topology torus(int height, int width) {
+        return new Topology(TORUS, new int[] { height, width });
+    }
+
+    // hexagonal cells in offset rows, odd rows shifted right by half a cell,
+    // every cell touches the 6 around it
+    public static Topology hex(int height, int width) {
+        return new Topology(HEX, new int[] { height, width });
+    }
+
+    // a grid of any number of dimensions (outermost first) where a cell touches
+    // every cell that differs by at most one in each coordinate (26 in 3d), as
+    // long as that fits in a cell's count
+    public static Topology grid(int... dims) {
+        if (dims.length == 0) {
+            throw new IllegalArgumentException("A board needs at least one dimension.");
+        }
+        return dims.length == 2 ? classic(dims[0], dims[1]) : new Topology(GRID, dims);
+    }
+
+    // whether this is the classic 8-neighbor grid
+    public boolean isClassic() {
+        return this.kind == CLASSIC;
+    }
+
+    // rows of the raster that holds the cells (the product of every dimension but
+    // the last)
+    public int getRows() {
+        return this.rows;
+    }
+
+    public int getCols() {
+        return this.cols;
+    }
+
+    public int size() {
+        return this.rows * this.cols;
+    }
+
+    // the size of every dimension, outermost first
+    public int[] getDims() {
+        return this.dims.clone();
+    }
+
+    // the most neighbors any cell has, the size a neighbor buffer needs
+    public int maxNeighbors() {
+        return this.maxNeighbors;
+    }
+
+    // write the flat indices of the neighbors of a cell to out (at least
+    // maxNeighbors long) and return how many there are
+    public int neighbors(int index, int[] out) {
+        if ((this.borderBits[index >>> 6] & (1L << index)) == 0) {
+            int[] offsets = this.offsets.length == 1 ? this.offsets[0] : this.offsets[(index / this.cols) & 1];
+            for (int i = 0; i < offsets.length; i++) {
+                out[i] = index + offsets[i];
+            }
+            return offsets.length;
+        }
+
+        int slot = Arrays.binarySearch(this.border, index);
+        int from = this.borderStart[slot];
+        int count = this.borderStart[slot + 1] - from;
+        System.arraycopy(this.borderNeighbors, from, out, 0, count);
+        return count;
+    }
+
+    // offsets to every cell that differs by at most one in each coordinate
+    private static int[] mooreOffsets(int[] dims) {
+        int n = dims.length;
+        int count = 1;
+        for (int d = 0; d < n; d++) {
+            count *= 3;
+        }
+        if (count - 1 > MAX_NEIGHBORS) {
+            throw new IllegalArgumentException("A cell can touch at most " + MAX_NEIGHBORS + " others.");
+        }
+
+        int[] offsets = new int[count - 1];
+        int i = 0;
+        for (int combination = 0; combination < count; combination++) {
+            int offset = 0;
+            int stride = 1;
+            int rest = combination;
+            for (int d = n - 1; d >= 0; d--) {
+                offset += (rest % 3 - 1) * stride;
+                stride *= dims[d];
+                rest /= 3;
+            }
+            if (combination != count / 2) {
+                offsets[i++] = offset;
+            }
+        }
+        return offsets;
+    }
+
+    // mark the first and last row and column, return how many cells that is
+    private int markEdges2d() {
+        int count = 0;
+        for (int row = 0; row < this.rows; row++) {
+            boolean edgeRow = row == 0 || row == this.rows - 1;
+            for (int col = 0; col < this.cols; col = edgeRow || col == this.cols - 1 ? col + 1 : this.cols - 1) {
+                this.markEdge(row * this.cols + col);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // mark every cell with a coordinate on an edge, counting the coordinates up
+    // like an odometer instead of dividing, return how many cells that is
+    private int markEdges() {
+        int n = this.dims.length;
+        int[] coords = new int[n];
+        // number of coordinates that are on an edge
+        int onEdge = 0;
+        for (int d = 0; d < n; d++) {
+            onEdge += isEdge(0, this.dims[d]) ? 1 : 0;
+        }
+
+        int count = 0;
+        int size = this.size();
+        for (int index = 0; index < size; index++) {
+            if (onEdge > 0) {
+                this.markEdge(index);
+                count++;
+            }
+            for (int d = n - 1; d >= 0; d--) {
+                onEdge -= isEdge(coords[d], this.dims[d]) ? 1 : 0;
+                coords[d] = coords[d] + 1 == this.dims[d] ? 0 : coords[d] + 1;
+                onEdge += isEdge(coords[d], this.dims[d]) ? 1 : 0;
+                if (coords[d] != 0) {
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+
+    private void markEdge(int index) {
+        this.borderBits[index >>> 6] |= 1L << index;
+    }
+
+    private static boolean isEdge(int coord, int dim) {
+        return coord == 0 || coord == dim - 1;
+    }
+
+    // split a flat index into coordinates
+    private void coordinates(int index, int[] coords) {
+        int rest = index;
+        for (int d = this.dims.length - 1; d >= 0; d--) {
+            coords[d] = rest % this.dims[d];
+            rest /= this.dims[d];
+        }
+    }
+
+    // list the neighbors of a cell by walking its coordinates, wrapping or
+    // skipping what falls outside the board, without duplicates or the cell
+    // itself (only used to build the table)
+    private int collectNeighbors(int index, int[] coords, int[] out) {
+        this.coordinates(index, coords);
+        int count = 0;
+
+        if (this.kind == HEX) {
+            int row = coords[0];
+            int col = coords[1];
+            int shift = row & 1;
+            int[][] deltas = { { -1, shift - 1 }, { -1, shift }, { 0, -1 }, { 0, 1 }, { 1, shift - 1 },
+                    { 1, shift } };
+            for (int[] delta : deltas) {
+                int r = row + delta[0];
+                int c = col + delta[1];
+                if (r >= 0 && r < this.dims[0] && c >= 0 && c < this.dims[1]) {
+                    count = addNeighbor(out, count, index, r * this.cols + c);
+                }
+            }
+            return count;
+        }
+
+        int n = this.dims.length;
+        int combinations = 1;
+        for (int d = 0; d < n; d++) {
+            combinations *= 3;
+        }
+        for (int combination = 0; combination < combinations; combination++) {
+            int neighbor = 0;
+            boolean inside = true;
+            int rest = combination;
+            int[] deltas = new int[n];
+            for (int d = n - 1; d >= 0; d--) {
+                deltas[d] = rest % 3 - 1;
+                rest /= 3;
+            }
+            for (int d = 0; d < n && inside; d++) {
+                int c = coords[d] + deltas[d];
+                if (this.kind == TORUS) {
+                    c = Math.floorMod(c, this.dims[d]);
+                }
+                inside = c >= 0 && c < this.dims[d];
+                neighbor = neighbor * this.dims[d] + c;
+            }
+            if (inside) {
+                count = addNeighbor(out, count, index, neighbor);
+            }
+        }
+        return count;
+    }
+
+    // append a neighbor unless it is the cell itself or already listed (a narrow
+    // torus wraps onto the same cell from both sides)
+    private static int addNeighbor(int[] out, int count, int index, int neighbor) {
+        if (neighbor == index) {
+            return count;
+        }
+        for (int i = 0; i < count; i++) {
+            if (out[i] == neighbor) {
+                return count;
+            }
+        }
+        out[count] = neighbor;
+        return count + 1;
+    }
+}
@@ -0,0 +1,141 @@
+package src;
+
+import java.util.Arrays;
+
+// an undo log records, for every action on a board, the cells it changed and
+// their packed values from before the action, plus the board's cells uncovered,
+// flag count and state from before it
+//
+// undoing an action swaps the recorded values with the grid's current ones, so
+// the record then holds the values after the action and redoing it is the same
+// swap again. memory grows with the number of cells changed, not with the size
+// of the board.
+class UndoLog {
+    // changed cells and their swapped out values, in the order they changed
+    private int[] indices = new int[64];
+    private byte[] values = new byte[64];
+    private int entries;
+
+    // per action: its first entry, and the swapped out counters
+    private int[] starts = new int[16];
+    private int[] uncovered = new int[16];
+    private int[] flags = new int[16];
+    private State[] states = new State[16];
+    private int actions;
+    // actions [0, applied) are applied, [applied, actions) were undone
+    private int applied;
+    // set while the changes of an action are being recorded
+    private boolean open;
+
+    // record the value of a cell before the current action changes it
+    // cellsUncovered, flags and state are the board's from before the action
+    void record(int index, byte before, int cellsUncovered, int flags, State state) {
+        if (!this.open) {
+            // a new action forgets everything that was undone
+            if (this.applied < this.actions) {
+                this.entries = this.starts[this.applied];
+                this.actions = this.applied;
+            }
+
+            if (this.actions == this.starts.length) {
+                int capacity = this.starts.length * 2;
+                this.starts = Arrays.copyOf(this.starts, capacity);
+                this.uncovered = Arrays.copyOf(this.uncovered, capacity);
+                this.flags = Arrays.copyOf(this.flags, capacity);
+                this.states = Arrays.copyOf(this.states, capacity);
+            }
+            this.starts[this.actions] = this.entries;
+            this.uncovered[this.actions] = cellsUncovered;
+            this.flags[this.actions] = flags;
+            this.states[this.actions] = state;
+            this.actions++;
+            this.applied = this.actions;
+            this.open = true;
+        }
+
+        if (this.entries == this.indices.length) {
+            int capacity = this.indices.length * 2;
+            this.indices = Arrays.copyOf(this.indices, capacity);
+            this.values = Arrays.copyOf(this.values, capacity);
+        }
+        this.indices[this.entries] = index;
+        this.values[this.entries] = before;
+        this.entries++;
+    }
+
+    // end the current action (nothing happens if it changed nothing)
+    void commit() {
+        this.open = false;
+    }
+
+    void clear() {
+        this.entries = 0;
+        this.actions = 0;
+        this.applied = 0;
+        this.open = false;
+    }
+
+    boolean canUndo() {
+        return this.applied > 0;
+    }
+
+    boolean canRedo() {
+        return this.applied < this.actions;
+    }
+
+    // swap the cells of the last applied action back, push them on changed and
+    // return the action (undo the counters with swapCounters)
+    int undo(CellGrid grid, IntStack changed) {
+        int action = --this.applied;
+        // in reverse, so a cell changed twice ends up with its first value
+        for (int entry = this.entryEnd(action) - 1; entry >= this.starts[action]; entry--) {
+            this.swap(grid, entry, changed);
+        }
+        return action;
+    }
+
+    // swap the cells of the first undone action in again, push them on changed
+    // and return the action (redo the counters with swapCounters)
+    int redo(CellGrid grid, IntStack changed) {
+        int action = this.applied++;
+        for (int entry = this.starts[action]; entry < this.entryEnd(action); entry++) {
+            this.swap(grid, entry, changed);
+        }
+        return action;
+    }
+
+    // the cells uncovered recorded for an action
+    int getUncovered(int action) {
+        return this.uncovered[action];
+    }
+
+    // the flag count recorded for an action
+    int getFlags(int action) {
+        return this.flags[action];
+    }
+
+    // the state recorded for an action
+    State getState(int action) {
+        return this.states[action];
+    }
+
+    // replace the counters recorded for an action with the board's current ones
+    void setCounters(int action, int cellsUncovered, int flags, State state) {
+        this.uncovered[action] = cellsUncovered;
+        this.flags[action] = flags;
+        this.states[action] = state;
+    }
+
+    // one past the last entry of an action
+    private int entryEnd(int action) {
+        return action + 1 < this.actions ? this.starts[action + 1] : this.entries;
+    }
+
+    private void swap(CellGrid grid, int entry, IntStack changed) {
+        int index = this.indices[entry];
+        byte current = grid.get(index);
+        grid.set(index, this.values[entry]);
+        this.values[entry] = current;
+        changed.push(index);
+    }
+}
@@ -0,0 +1,33 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ActionJournalTest {
+    // records reach the file on their own, without a full buffer, a flush or a
+    // close, so a crash loses at most the last few milliseconds
+    @Test
+    void recordsAreWrittenWithoutAFlush(@TempDir Path directory) throws IOException, InterruptedException {
+        Path path = directory.resolve("game.csj");
+        ActionJournal journal = new ActionJournal(path, 9, 9, 10, 1L, true);
+        journal.record(40, ActionJournal.LEFT_CLICK);
+        journal.record(0, ActionJournal.RIGHT_CLICK);
+        journal.record(80, ActionJournal.LEFT_CLICK);
+
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (Files.size(path) == ActionJournal.HEADER_BYTES && System.nanoTime() < deadline) {
+            Thread.sleep(ActionJournal.FLUSH_MILLIS);
+        }
+        journal.awaitWritten();
+        assertEquals(3, Replay.load(path).getActions());
+
+        journal.close();
+        journal.awaitWritten();
+    }
+}
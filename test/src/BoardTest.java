@@ -0,0 +1,44 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class BoardTest {
+    // boards just under, at and over the size where neighbors are counted in
+    // parallel row bands, in shapes whose bands are a single row or column wide
+    // or don't divide the rows evenly
+    @Test
+    void parallelCountsMatchANeighborWalk() {
+        int cells = Board.PARALLEL_COUNT_CELLS;
+        int[][] shapes = {
+            { 1, cells - 1 }, { 1, 2 * cells }, { 2 * cells, 1 }, { cells + 1, 1 },
+            { 512, 512 }, { 513, 1021 }, { 1023, 1025 }, { 7, 4 * cells / 7 + 3 },
+        };
+        for (int[] shape : shapes) {
+            int height = shape[0];
+            int width = shape[1];
+            Board board = new Board(height, width, height * width / 5, 0, 0, height * 31L + width, false);
+            CellGridTest.assertCounts(board.getCells(), height + "x" + width);
+        }
+    }
+
+    // the flag count follows flags, a reset and revealing the whole board
+    @Test
+    void flagCountFollowsTheBoard() {
+        Board board = new Board(9, 9, 10, 4, 4, 1L, true);
+        board.toggleFlag(0, 0);
+        board.toggleFlag(0, 1);
+        board.toggleFlag(8, 8);
+        board.toggleFlag(0, 1);
+        assertEquals(2, board.getFlags());
+
+        board.revealAll();
+        assertEquals(0, board.getFlags());
+
+        board.reset(10, 4, 4, 2L, true);
+        board.toggleFlag(3, 3);
+        board.reset(10, 4, 4, 3L, true);
+        assertEquals(0, board.getFlags());
+    }
+}
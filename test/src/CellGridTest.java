@@ -0,0 +1,65 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class CellGridTest {
+    // counting the rows in bands of any size gives the counts of a plain walk
+    // over the eight neighbors of every cell, on single rows and columns too
+    @Test
+    void bandedCountsMatchANeighborWalk() {
+        SplittableRandom random = new SplittableRandom(5);
+        int[][] shapes = { { 1, 1 }, { 1, 2 }, { 2, 1 }, { 1, 300 }, { 300, 1 }, { 2, 2 }, { 3, 7 }, { 40, 33 } };
+        for (int[] shape : shapes) {
+            for (int trial = 0; trial < 20; trial++) {
+                checkBands(shape[0], shape[1], random);
+            }
+        }
+        for (int trial = 0; trial < 200; trial++) {
+            checkBands(random.nextInt(1, 50), random.nextInt(1, 50), random);
+        }
+    }
+
+    private static void checkBands(int height, int width, SplittableRandom random) {
+        CellGrid cells = new CellGrid(height, width);
+        double density = random.nextDouble();
+        for (int index = 0; index < height * width; index++) {
+            if (random.nextDouble() < density) {
+                cells.setMine(index);
+            }
+        }
+
+        // bands of random heights, down to a single row
+        int from = 0;
+        while (from < height) {
+            int to = Math.min(height, from + random.nextInt(1, 5));
+            cells.countNeighborMines(from, to);
+            from = to;
+        }
+        assertCounts(cells, height + "x" + width);
+    }
+
+    // the count of every cell against a walk over its neighbors
+    static void assertCounts(CellGrid cells, String board) {
+        int height = cells.getHeight();
+        int width = cells.getWidth();
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                int count = 0;
+                for (int r = row - 1; r <= row + 1; r++) {
+                    for (int c = col - 1; c <= col + 1; c++) {
+                        if ((r != row || c != col) && r >= 0 && r < height && c >= 0 && c < width
+                                && cells.getMine(r * width + c)) {
+                            count++;
+                        }
+                    }
+                }
+                assertEquals(count, cells.getNeighborMines(row * width + col),
+                        "count of " + row + "," + col + " on " + board);
+            }
+        }
+    }
+}
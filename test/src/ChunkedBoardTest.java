@@ -0,0 +1,121 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ChunkedBoardTest {
+    private static final int SIZE = ChunkedBoard.CHUNK_SIZE;
+
+    // the first click is at the corner of four chunks, and its neighbors are
+    // safe, so the flood starts in all four of them
+    @Test
+    void floodCrossesChunkBorders() {
+        ChunkedBoard board = new ChunkedBoard(0.15, 7L);
+        board.leftClick(0, 0);
+
+        assertEquals(State.IN_PROGRESS, board.getState());
+        for (int r = -1; r <= 1; r++) {
+            for (int c = -1; c <= 1; c++) {
+                assertTrue(board.getRevealed(r, c), "neighbor " + r + "," + c + " of the first click");
+            }
+        }
+
+        // every revealed empty cell has revealed all of its neighbors, in
+        // whichever chunk they are
+        int window = 4 * SIZE;
+        for (int row = -window; row < window; row++) {
+            for (int col = -window; col < window; col++) {
+                if (board.getRevealed(row, col) && board.getDisplayChar(row, col) == ' ') {
+                    for (int r = row - 1; r <= row + 1; r++) {
+                        for (int c = col - 1; c <= col + 1; c++) {
+                            assertTrue(board.getRevealed(r, c), "neighbor " + r + "," + c + " of empty cell");
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // with a single live chunk every step of the flood evicts and reloads
+    // chunks, which has to give the same board as keeping them all
+    @Test
+    void evictionGivesTheSameBoard() {
+        ChunkedBoard kept = new ChunkedBoard(0.15, 11L);
+        ChunkedBoard evicted = new ChunkedBoard(0.15, 11L, 1);
+        kept.leftClick(SIZE - 1, SIZE - 1);
+        evicted.leftClick(SIZE - 1, SIZE - 1);
+
+        assertEquals(kept.getCellsUncovered(), evicted.getCellsUncovered());
+        assertEquals(1, evicted.getLiveChunks());
+        assertTrue(evicted.getCompactChunks() > 0);
+
+        int window = 4 * SIZE;
+        for (int row = -window; row < window; row++) {
+            for (int col = -window; col < window; col++) {
+                assertEquals(kept.getDisplayChar(row, col), evicted.getDisplayChar(row, col),
+                        "cell " + row + "," + col);
+            }
+        }
+    }
+
+    // flags and reveals survive an evict/reload round trip, a chunk the player
+    // left unchanged is dropped
+    @Test
+    void evictAndReloadKeepsThePlayersCells() {
+        ChunkedBoard board = new ChunkedBoard(0.2, 3L, 1);
+        board.leftClick(0, 0);
+        int far = 100 * SIZE;
+
+        board.rightClick(far, far);
+        int compact = board.getCompactChunks();
+
+        // loading another chunk evicts the flagged one to its bits
+        board.rightClick(-far, -far);
+        board.rightClick(-far, -far);
+        assertFalse(board.isLive(far, far));
+        assertEquals(compact + 1, board.getCompactChunks());
+        assertTrue(board.getFlagged(far, far));
+
+        // loading the flagged chunk again restores it, and the unflagged chunk
+        // has nothing to keep
+        board.rightClick(far, far + 1);
+        assertTrue(board.isLive(far, far));
+        assertFalse(board.isLive(-far, -far));
+        assertEquals(compact, board.getCompactChunks());
+        assertTrue(board.getFlagged(far, far));
+        assertTrue(board.getFlagged(far, far + 1));
+        assertFalse(board.getFlagged(-far, -far));
+
+        // the revealed cells come back with their values
+        assertTrue(board.getRevealed(0, 0));
+        assertEquals(' ', board.getDisplayChar(0, 0));
+    }
+
+    // the chunk in use is the last one evicted, even when it was only used
+    // through the cache while another chunk was looked at
+    @Test
+    void chunkInUseIsNotEvicted() {
+        ChunkedBoard board = new ChunkedBoard(0.2, 5L, 2);
+        board.leftClick(0, 0);
+        int a = 100 * SIZE;
+        int b = 200 * SIZE;
+        int c = 300 * SIZE;
+
+        board.rightClick(b, b);
+        board.rightClick(a, a);
+        // looks at b without making it the cached chunk
+        assertTrue(board.getFlagged(b, b));
+        // a is used again through the cache
+        board.rightClick(a, a);
+        board.rightClick(a, a);
+
+        board.rightClick(c, c);
+        assertTrue(board.isLive(a, a));
+        assertFalse(board.isLive(b, b));
+        assertTrue(board.getFlagged(a, a));
+        assertTrue(board.getFlagged(b, b));
+    }
+}
@@ -0,0 +1,191 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// many threads hammer one shared board. the board is small by default so the
+// suite stays quick, the full stress run is
+//
+// mvn test -Dtest=ConcurrentBoardTest -DconcurrentBoard.size=2000 -DconcurrentBoard.rounds=3
+class ConcurrentBoardTest {
+    private static final int SIZE = Integer.getInteger("concurrentBoard.size", 300);
+    private static final int THREADS = Integer.getInteger("concurrentBoard.threads",
+            Math.max(8, Runtime.getRuntime().availableProcessors() * 2));
+    private static final int ROUNDS = Integer.getInteger("concurrentBoard.rounds", 1);
+    private static final long SEED = 42L;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void startExecutor() {
+        this.executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void stopExecutor() {
+        this.executor.shutdownNow();
+    }
+
+    // with a single mine (almost) every safe cell is in one flood, so floods
+    // started at once from different empty cells overlap entirely: between them
+    // they have to reveal exactly the cells the same reveals do one at a time
+    @Test
+    void overlappingFloodsCountEveryCellOnce() throws Exception {
+        for (long seed = 0; seed < 20; seed++) {
+            Board generated = new Board(64, 64, 1, 32, 32, seed, true);
+            List<Integer> starts = new ArrayList<>();
+            for (int index = 0; index < 64 * 64 && starts.size() < THREADS; index += 64 * 64 / THREADS) {
+                int start = index;
+                while (generated.getMine(start) || generated.getCells().getNeighborMines(start) != 0) {
+                    start++;
+                }
+                starts.add(start);
+            }
+            Board sequential = new Board(64, 64, 1, 32, 32, seed, true);
+            for (int start : starts) {
+                sequential.leftClick(start / 64, start % 64);
+            }
+            int expected = sequential.getCellsUncovered();
+            ConcurrentBoard board = new ConcurrentBoard(generated);
+
+            CountDownLatch go = new CountDownLatch(1);
+            List<Future<Integer>> floods = new ArrayList<>();
+            for (int start : starts) {
+                floods.add(this.executor.submit(() -> {
+                    go.await();
+                    return board.reveal(start / 64, start % 64);
+                }));
+            }
+            go.countDown();
+
+            int revealed = 0;
+            for (Future<Integer> flood : floods) {
+                revealed += flood.get();
+            }
+            assertEquals(expected, revealed, "cells revealed by the floods, seed " + seed);
+            assertEquals(expected, board.getCellsUncovered(), "cells counted by the board, seed " + seed);
+            assertEquals(sequential.getState(), board.getState(), "state, seed " + seed);
+        }
+    }
+
+    // play until every safe cell is revealed, the board has to be won with every
+    // safe cell counted exactly once
+    @Test
+    void playersWinTogether() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            long seed = SEED + round;
+            ConcurrentBoard board = new ConcurrentBoard(SIZE, SIZE, SIZE * SIZE / 5, SIZE / 2, SIZE / 2, seed, true);
+            long revealed = this.playAll(board, seed, -1);
+
+            int revealedCells = 0;
+            for (int index = 0; index < SIZE * SIZE; index++) {
+                if (board.getRevealed(index)) {
+                    revealedCells++;
+                    assertFalse(board.getMine(index), "a mine was revealed at " + index);
+                } else {
+                    assertTrue(board.getMine(index), "safe cell " + index + " is still covered");
+                }
+            }
+            assertEquals(State.WON, board.getState());
+            assertEquals(revealedCells, revealed, "cells the players revealed");
+            assertEquals(revealedCells, board.getCellsUncovered(), "cells the board counted");
+        }
+    }
+
+    // one player reveals a mine early on, the game ends exactly once (lost, or won
+    // if the others cleared the board first) and every reveal is counted once
+    @Test
+    void oneLossEndsTheGame() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            long seed = SEED + round;
+            ConcurrentBoard board = new ConcurrentBoard(SIZE, SIZE, SIZE * SIZE / 5, SIZE / 2, SIZE / 2, seed, true);
+            long revealed = this.playAll(board, seed, 0);
+
+            int revealedCells = 0;
+            int revealedMines = 0;
+            int coveredSafe = 0;
+            for (int index = 0; index < SIZE * SIZE; index++) {
+                if (board.getRevealed(index)) {
+                    revealedCells++;
+                    revealedMines += board.getMine(index) ? 1 : 0;
+                } else if (!board.getMine(index)) {
+                    coveredSafe++;
+                }
+            }
+            if (board.getState() == State.LOST) {
+                assertTrue(revealedMines > 0, "the board is lost without a revealed mine");
+            } else {
+                assertEquals(State.WON, board.getState());
+                assertEquals(0, coveredSafe, "safe cells covered on a won board");
+            }
+            assertEquals(revealedCells, revealed, "cells the players revealed");
+            assertEquals(revealedCells, board.getCellsUncovered(), "cells the board counted");
+        }
+    }
+
+    // start the players together and wait for the game to end, player 0 flags
+    // mines and the player numbered loser reveals a mine after a while (-1 for
+    // none). returns the number of cells they revealed
+    private long playAll(ConcurrentBoard board, long seed, int loser) throws Exception {
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<Integer>> players = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int player = t;
+            players.add(this.executor.submit(() -> {
+                go.await();
+                return play(board, new SplittableRandom(seed * 31 + player), player == 0, player == loser);
+            }));
+        }
+        go.countDown();
+
+        long revealed = 0;
+        for (Future<Integer> player : players) {
+            revealed += player.get();
+        }
+        return revealed;
+    }
+
+    private static int play(ConcurrentBoard board, SplittableRandom random, boolean flagger, boolean loser) {
+        int width = board.getWidth();
+        int cells = board.getHeight() * width;
+        int revealed = 0;
+        long moves = 0;
+
+        // sweep from a random start so players overlap, with random probes mixed in
+        int cursor = random.nextInt(cells);
+        while (board.getState() == State.IN_PROGRESS) {
+            moves++;
+            int index = random.nextInt(4) == 0 ? random.nextInt(cells) : (cursor = (cursor + 1) % cells);
+            int row = index / width;
+            int col = index % width;
+
+            if (board.getMine(index)) {
+                if (loser && moves > 10) {
+                    revealed += board.reveal(row, col);
+                } else if (flagger && !board.getFlagged(index)) {
+                    // a single player flags, so a flag is never taken back while
+                    // another player chords next to it
+                    board.toggleFlag(row, col);
+                }
+            } else if (board.getRevealed(index)) {
+                revealed += board.chord(row, col);
+            } else {
+                revealed += board.reveal(row, col);
+            }
+        }
+        return revealed;
+    }
+}
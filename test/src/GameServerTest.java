@@ -0,0 +1,62 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GameServerTest {
+    private GameServer server;
+
+    @BeforeEach
+    void start() throws IOException {
+        this.server = new GameServer(0, GameServer.DEFAULT_IDLE_MILLIS);
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        this.server.close();
+    }
+
+    private String request(String line) {
+        StringBuilder response = new StringBuilder();
+        this.server.handle(line, response);
+        return response.toString();
+    }
+
+    // every cell but the first one is a mine, so the first reveal wins and
+    // nothing may change the board after it
+    @Test
+    void actionsAfterTheGameEndsFail() {
+        String session = this.request("NEW 5 5 24").substring(3);
+        assertTrue(this.request("REVEAL " + session + " 2 2").startsWith("OK WON"));
+
+        assertEquals("ERR the game is over", this.request("REVEAL " + session + " 0 0"));
+        assertEquals("ERR the game is over", this.request("FLAG " + session + " 0 0"));
+        assertEquals("ERR the game is over", this.request("CHORD " + session + " 2 2"));
+    }
+
+    // the boards of the live sessions share one budget of cells, ending a
+    // session gives its cells back
+    @Test
+    void liveCellsAreCapped() {
+        int side = 1 << 12;
+        long sessions = GameServer.MAX_LIVE_CELLS / ((long) side * side);
+        String first = null;
+        for (long i = 0; i < sessions; i++) {
+            String response = this.request("NEW " + side + " " + side + " 10");
+            assertTrue(response.startsWith("OK "), response);
+            if (first == null) {
+                first = response.substring(3);
+            }
+        }
+
+        assertEquals("ERR server is full", this.request("NEW " + side + " " + side + " 10"));
+        assertEquals("OK", this.request("END " + first));
+        assertTrue(this.request("NEW " + side + " " + side + " 10").startsWith("OK "));
+    }
+}
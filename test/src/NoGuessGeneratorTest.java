@@ -0,0 +1,33 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+class NoGuessGeneratorTest {
+    // a board the result calls no-guess is won by deductions alone
+    @Test
+    void noGuessBoardIsSolvedByLogic() {
+        NoGuessGenerator.Result result = NoGuessGenerator.generate(9, 9, 10, 4, 4, 1L, 60_000);
+
+        assertTrue(result.isNoGuess());
+        Board board = result.getBoard();
+        assertEquals(0, board.getCellsUncovered());
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        assertTrue(NoGuessGenerator.solvesWithoutGuessing(board, 4, 4, new AtomicReference<>(), deadline));
+    }
+
+    // with no time to search, the board handed back says that it may need a guess
+    @Test
+    void boardAfterTheBudgetMayNeedAGuess() {
+        NoGuessGenerator.Result result = NoGuessGenerator.generate(9, 9, 10, 4, 4, 1L, 0);
+
+        assertFalse(result.isNoGuess());
+        assertEquals(10, result.getBoard().getMines());
+    }
+}
@@ -0,0 +1,87 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SaveFileTest {
+    // a game in progress and a lost game come back with the same counters
+    @Test
+    void savedGamesLoad(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("game.csav");
+        Board board = new Board(16, 30, 99, 8, 15, 3L, true);
+        board.leftClick(8, 15);
+        board.toggleFlag(15, 29);
+        SaveFile.save(path, board, 5);
+        Board loaded = SaveFile.load(path).getBoard();
+        assertEquals(State.IN_PROGRESS, loaded.getState());
+        assertEquals(board.getCellsUncovered(), loaded.getCellsUncovered());
+        assertEquals(board.getFlags(), loaded.getFlags());
+
+        board.leftClick(firstMine(board) / 30, firstMine(board) % 30);
+        SaveFile.save(path, board, 5);
+        loaded = SaveFile.load(path).getBoard();
+        assertEquals(State.LOST, loaded.getState());
+        assertEquals(board.getCellsUncovered(), loaded.getCellsUncovered());
+    }
+
+    // a header that disagrees with the planes is rejected, whichever field it is
+    @Test
+    void inconsistentHeadersAreRejected(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("game.csav");
+        Board board = new Board(16, 30, 99, 8, 15, 3L, true);
+        board.leftClick(8, 15);
+
+        // one mine too many
+        SaveFile.save(path, board, 5);
+        patchInt(path, 16, 100);
+        assertThrows(IOException.class, () -> SaveFile.load(path));
+
+        // one cell uncovered too few
+        SaveFile.save(path, board, 5);
+        patchInt(path, 20, board.getCellsUncovered() - 1);
+        assertThrows(IOException.class, () -> SaveFile.load(path));
+
+        // lost, with no mine revealed
+        SaveFile.save(path, board, 5);
+        patchByte(path, 24, 2);
+        assertThrows(IOException.class, () -> SaveFile.load(path));
+
+        // won, with safe cells still covered
+        SaveFile.save(path, board, 5);
+        patchByte(path, 24, 1);
+        assertThrows(IOException.class, () -> SaveFile.load(path));
+    }
+
+    private static int firstMine(Board board) {
+        int index = 0;
+        while (!board.getMine(index)) {
+            index++;
+        }
+        return index;
+    }
+
+    private static void patchInt(Path path, int offset, int value) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).putInt(0, value);
+        patch(path, offset, bytes);
+    }
+
+    private static void patchByte(Path path, int offset, int value) throws IOException {
+        patch(path, offset, ByteBuffer.wrap(new byte[] { (byte) value }));
+    }
+
+    private static void patch(Path path, int offset, ByteBuffer bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(bytes, offset);
+        }
+    }
+}
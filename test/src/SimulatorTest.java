@@ -0,0 +1,47 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+class SimulatorTest {
+    // every no-guess game is counted, a fallback only when no no-guess board was
+    // found, and the summary reports them
+    @Test
+    void noGuessGamesAreCounted() throws IOException, InterruptedException {
+        Simulator simulator = new Simulator(9, 9, 10, 200, 2, 7L, Simulator.Generator.NO_GUESS, "solver", null);
+        Simulator.Stats stats = simulator.run();
+
+        assertEquals(200, stats.games);
+        assertEquals(200, stats.noGuessGames);
+        // beginner boards that need no guessing are found at once, and the solver
+        // wins all of them
+        assertEquals(0, stats.fallbacks);
+        assertEquals(200, stats.won);
+        assertTrue(stats.summary(2).contains("no-guess:   0 fell back"));
+    }
+
+    // the totals of several threads add up, fallbacks included
+    @Test
+    void fallbacksAreMerged() {
+        Simulator.Stats first = new Simulator.Stats();
+        first.add(Simulator.OUTCOME_WON, 10, 70, 1000);
+        first.addNoGuess(Simulator.OUTCOME_WON, true);
+        Simulator.Stats second = new Simulator.Stats();
+        second.add(Simulator.OUTCOME_LOST, 3, 20, 3000);
+        second.addNoGuess(Simulator.OUTCOME_LOST, true);
+        second.add(Simulator.OUTCOME_WON, 12, 71, 2000);
+        second.addNoGuess(Simulator.OUTCOME_WON, false);
+
+        first.merge(second);
+        assertEquals(3, first.games);
+        assertEquals(3, first.noGuessGames);
+        assertEquals(2, first.fallbacks);
+        assertEquals(1, first.fallbacksWon);
+        assertEquals(2000, first.meanNanos, 1e-9);
+        assertTrue(first.summary(1).contains("no-guess:   2 fell back to a safe opening (66.667%, 1 of them won)"));
+    }
+}
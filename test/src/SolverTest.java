@@ -0,0 +1,310 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class SolverTest {
+    // more flags than mines is a board the player can make, the analysis has to
+    // cope with it
+    @Test
+    void overFlaggedBoardIsAnalyzed() {
+        Board board = new Board(16, 16, 10, 8, 8, 42L, true);
+        board.leftClick(8, 8);
+
+        int flags = 0;
+        for (int index = 0; index < 16 * 16 && flags < 30; index++) {
+            if (!board.getRevealed(index)) {
+                board.toggleFlag(index / 16, index % 16);
+                flags++;
+            }
+        }
+
+        Solver solver = new Solver(board);
+        assertDoesNotThrow(() -> {
+            solver.deduce();
+            solver.computeProbabilities();
+        });
+        for (int index = 0; index < 16 * 16; index++) {
+            double probability = solver.getProbability(index);
+            assertTrue(probability >= 0 && probability <= 1, "probability of cell " + index);
+        }
+        assertDoesNotThrow(solver::bestGuess);
+    }
+
+    // flags around a number that already has all its mines leave no mines for
+    // the rest of the board
+    @Test
+    void flagsAroundANumberBeyondTheMineCount() {
+        byte[] visible = new byte[5 * 5];
+        Arrays.fill(visible, Solver.UNKNOWN);
+        visible[12] = 1;
+        visible[6] = Solver.FLAG;
+        visible[7] = Solver.FLAG;
+        visible[8] = Solver.FLAG;
+
+        Solver solver = new Solver(5, 5, 2, visible);
+        assertDoesNotThrow(() -> {
+            solver.deduce();
+            solver.computeProbabilities();
+        });
+        assertTrue(solver.getInteriorProbability() >= 0);
+    }
+
+    // on boards small enough to try every placement of the mines, the deductions
+    // and probabilities are exactly the share of the placements that fit what
+    // the player sees
+    @Test
+    void probabilitiesMatchEveryPlacement() {
+        SplittableRandom random = new SplittableRandom(1);
+        int[][] sizes = { { 4, 4 }, { 3, 6 }, { 4, 5 }, { 5, 4 }, { 2, 10 } };
+        for (int game = 0; game < 200; game++) {
+            int[] size = sizes[game % sizes.length];
+            int height = size[0];
+            int width = size[1];
+            int nMines = 2 + random.nextInt(5);
+            Board board = new Board(height, width, nMines, random.nextInt(height), random.nextInt(width),
+                    random.nextLong(), false);
+
+            while (board.getState() == State.IN_PROGRESS) {
+                Solver solver = new Solver(board);
+                solver.deduce();
+                solver.computeProbabilities();
+                double[] expected = placementProbabilities(board);
+                for (int index = 0; index < height * width; index++) {
+                    assertEquals(expected[index], solver.getProbability(index), 1e-9,
+                            "game " + game + ", cell " + index);
+                }
+
+                playRandomly(board, random);
+            }
+        }
+    }
+
+    // a solver kept up to date from the board's changes gives the same answers
+    // as one that reads the board from scratch, through reveals, flags, unflags
+    // and undos
+    @Test
+    void incrementalUpdatesMatchAFreshSolver() {
+        SplittableRandom random = new SplittableRandom(2);
+        for (int game = 0; game < 40; game++) {
+            int height = game % 2 == 0 ? 9 : 16;
+            int width = game % 2 == 0 ? 9 : 16;
+            int nMines = game % 2 == 0 ? 10 : 40;
+            Board board = new Board(height, width, nMines, height / 2, width / 2, random.nextLong(), true);
+            board.setUndoEnabled(true);
+            Solver incremental = new Solver(board);
+            board.addBoardListener(incremental);
+
+            for (int move = 0; move < 60 && board.getState() == State.IN_PROGRESS; move++) {
+                if (random.nextInt(8) == 0 && board.canUndo()) {
+                    board.undo();
+                } else {
+                    playRandomly(board, random);
+                }
+                // the incremental solver sees several changes at once now and then
+                if (random.nextBoolean()) {
+                    continue;
+                }
+
+                incremental.deduce();
+                incremental.computeProbabilities();
+                Solver fresh = new Solver(board);
+                fresh.deduce();
+                fresh.computeProbabilities();
+                // the two may walk a component in another order, so one of them
+                // can run out of enumeration budget where the other does not
+                if (!fresh.isExact() || !incremental.isExact()) {
+                    continue;
+                }
+                for (int index = 0; index < height * width; index++) {
+                    assertEquals(fresh.getProbability(index), incremental.getProbability(index), 1e-9,
+                            "game " + game + ", move " + move + ", cell " + index);
+                }
+            }
+        }
+    }
+
+    // a component far larger than a brute force can try is still enumerated
+    // exactly (and in parallel): a row of covered cells above a row of numbers,
+    // where the first two cells decide all the others
+    @Test
+    void largeComponentIsExact() {
+        SplittableRandom random = new SplittableRandom(3);
+        int width = 50;
+        for (int game = 0; game < 20; game++) {
+            int[] layout = new int[width];
+            int nMines = 0;
+            for (int col = 0; col < width; col++) {
+                layout[col] = random.nextInt(3) == 0 ? 1 : 0;
+                nMines += layout[col];
+            }
+            byte[] visible = new byte[2 * width];
+            Arrays.fill(visible, 0, width, Solver.UNKNOWN);
+            for (int col = 0; col < width; col++) {
+                visible[width + col] = (byte) around(layout, col);
+            }
+
+            // every layout that fits the numbers and the mine count
+            double[] expected = new double[width];
+            int layouts = 0;
+            for (int first = 0; first < 4; first++) {
+                int[] candidate = new int[width];
+                candidate[0] = first & 1;
+                candidate[1] = first >> 1;
+                boolean fits = true;
+                int mines = candidate[0] + candidate[1];
+                for (int col = 1; col < width - 1 && fits; col++) {
+                    candidate[col + 1] = visible[width + col] - candidate[col - 1] - candidate[col];
+                    fits = candidate[col + 1] == 0 || candidate[col + 1] == 1;
+                    mines += candidate[col + 1];
+                }
+                if (!fits || mines != nMines || around(candidate, 0) != visible[width]
+                        || around(candidate, width - 1) != visible[2 * width - 1]) {
+                    continue;
+                }
+                layouts++;
+                for (int col = 0; col < width; col++) {
+                    expected[col] += candidate[col];
+                }
+            }
+
+            Solver solver = new Solver(2, width, nMines, visible);
+            solver.computeProbabilities();
+            assertTrue(solver.isExact());
+            for (int col = 0; col < width; col++) {
+                assertEquals(expected[col] / layouts, solver.getProbability(col), 1e-9, "game " + game + ", cell " + col);
+            }
+        }
+    }
+
+    // a component that needs more steps than the budget is approximated, and
+    // says so
+    @Test
+    void componentOverBudgetIsApproximate() {
+        // covered rows above and below a row of 1s, with a mine above every third
+        int width = 60;
+        byte[] visible = new byte[3 * width];
+        Arrays.fill(visible, Solver.UNKNOWN);
+        for (int col = 0; col < width; col++) {
+            visible[width + col] = 1;
+        }
+
+        Solver solver = new Solver(3, width, width / 3, visible);
+        solver.setEnumerationBudget(1 << 16);
+        solver.computeProbabilities();
+        assertFalse(solver.isExact());
+        for (int index = 0; index < visible.length; index++) {
+            double probability = solver.getProbability(index);
+            assertTrue(probability >= 0 && probability <= 1, "probability of cell " + index);
+        }
+    }
+
+    // the mines of a row of cells around one column
+    private static int around(int[] layout, int col) {
+        int count = 0;
+        for (int c = Math.max(0, col - 1); c <= Math.min(layout.length - 1, col + 1); c++) {
+            count += layout[c];
+        }
+        return count;
+    }
+
+    // reveal a random safe cell, or flag or unflag a random mine
+    private static void playRandomly(Board board, SplittableRandom random) {
+        int width = board.getWidth();
+        int size = board.getHeight() * width;
+        while (true) {
+            int index = random.nextInt(size);
+            if (board.getRevealed(index)) {
+                continue;
+            }
+            if (board.getMine(index)) {
+                board.toggleFlag(index / width, index % width);
+            } else if (!board.getFlagged(index)) {
+                board.leftClick(index / width, index % width);
+            } else {
+                continue;
+            }
+            return;
+        }
+    }
+
+    // the share of the placements of the board's mines that fit its revealed
+    // numbers and flags with a mine in each cell, by trying every placement
+    private static double[] placementProbabilities(Board board) {
+        int width = board.getWidth();
+        int height = board.getHeight();
+        int size = height * width;
+        int[] free = new int[size];
+        int nFree = 0;
+        int flags = 0;
+        for (int index = 0; index < size; index++) {
+            if (board.getFlagged(index)) {
+                flags++;
+            } else if (!board.getRevealed(index)) {
+                free[nFree++] = index;
+            }
+        }
+
+        boolean[] mine = new boolean[size];
+        long placements = 0;
+        long[] mines = new long[size];
+        for (int mask = 0; mask < 1 << nFree; mask++) {
+            if (Integer.bitCount(mask) != board.getMines() - flags) {
+                continue;
+            }
+            for (int index = 0; index < size; index++) {
+                mine[index] = board.getFlagged(index);
+            }
+            for (int i = 0; i < nFree; i++) {
+                mine[free[i]] = (mask >> i & 1) != 0;
+            }
+            if (!fits(board, mine)) {
+                continue;
+            }
+            placements++;
+            for (int index = 0; index < size; index++) {
+                if (mine[index]) {
+                    mines[index]++;
+                }
+            }
+        }
+
+        double[] probability = new double[size];
+        for (int index = 0; index < size; index++) {
+            probability[index] = (double) mines[index] / placements;
+        }
+        return probability;
+    }
+
+    // whether every revealed number counts the mines of a placement around it
+    private static boolean fits(Board board, boolean[] mine) {
+        int width = board.getWidth();
+        int height = board.getHeight();
+        for (int index = 0; index < height * width; index++) {
+            if (!board.getRevealed(index)) {
+                continue;
+            }
+            int row = index / width;
+            int col = index % width;
+            int count = 0;
+            for (int r = Math.max(0, row - 1); r <= Math.min(height - 1, row + 1); r++) {
+                for (int c = Math.max(0, col - 1); c <= Math.min(width - 1, col + 1); c++) {
+                    if (mine[r * width + c]) {
+                        count++;
+                    }
+                }
+            }
+            if (count != board.getNeighborMines(index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
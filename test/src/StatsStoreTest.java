@@ -0,0 +1,121 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StatsStoreTest {
+    // opening a store rebuilds the same counts and best times that were kept
+    // while recording
+    @Test
+    void reopeningRebuildsTheIndex(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("stats.css");
+        long[] expected;
+        try (StatsStore store = new StatsStore(path)) {
+            SplittableRandom random = new SplittableRandom(1);
+            for (int game = 0; game < 3000; game++) {
+                int size = game % 3 == 0 ? 9 : 16;
+                byte outcome = random.nextInt(3) == 0 ? StatsStore.OUTCOME_LOST : StatsStore.OUTCOME_WON;
+                store.record(size, size, size + 1, outcome, random.nextLong(1, 1L << 40), game, 10);
+            }
+            expected = store.getBestTimes(16, 16, 17, 50);
+            assertEquals(3000, store.size());
+            assertEquals(2000, store.getGames(16, 16, 17));
+        }
+
+        try (StatsStore store = new StatsStore(path)) {
+            assertEquals(3000, store.size());
+            assertEquals(1000, store.getGames(9, 9, 10));
+            assertEquals(2000, store.getGames(16, 16, 17));
+            assertEquals(store.getWins(16, 16, 17) / 2000.0, store.getWinRate(16, 16, 17), 1e-12);
+            assertArrayEquals(expected, store.getBestTimes(16, 16, 17, 50));
+            assertEquals(0, store.getGames(30, 16, 99));
+        }
+    }
+
+    // the best times are the fastest wins, whether they sit in the sorted array
+    // or in the recent tail, queried in between recording
+    @Test
+    void bestTimesMergeRecentWins(@TempDir Path directory) throws IOException {
+        try (StatsStore store = new StatsStore(directory.resolve("stats.css"))) {
+            SplittableRandom random = new SplittableRandom(2);
+            long[] wins = new long[20_000];
+            for (int i = 0; i < wins.length; i++) {
+                wins[i] = random.nextLong(1, 1L << 40);
+                store.record(16, 30, 99, StatsStore.OUTCOME_WON, wins[i], i, 100);
+                store.record(16, 30, 99, StatsStore.OUTCOME_LOST, 1, i, 1);
+                if (i % 997 == 0) {
+                    long[] sorted = Arrays.copyOf(wins, i + 1);
+                    Arrays.sort(sorted);
+                    assertArrayEquals(Arrays.copyOf(sorted, Math.min(10, i + 1)), store.getBestTimes(16, 30, 99, 10));
+                }
+            }
+
+            Arrays.sort(wins);
+            assertArrayEquals(Arrays.copyOf(wins, 100), store.getBestTimes(16, 30, 99, 100));
+            assertArrayEquals(wins, store.getBestTimes(16, 30, 99, Integer.MAX_VALUE));
+            assertEquals(0.5, store.getWinRate(16, 30, 99), 1e-12);
+        }
+    }
+
+    // a record cut off at the end of the file is dropped, and the records that
+    // come after it line up
+    @Test
+    void partialRecordIsTruncated(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("stats.css");
+        try (StatsStore store = new StatsStore(path)) {
+            store.record(9, 9, 10, StatsStore.OUTCOME_WON, 5_000, 1, 20);
+            store.record(9, 9, 10, StatsStore.OUTCOME_LOST, 7_000, 2, 3);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(StatsStore.RECORD_BYTES / 2));
+        }
+
+        try (StatsStore store = new StatsStore(path)) {
+            assertEquals(2, store.size());
+            assertEquals(StatsStore.HEADER_BYTES + 2 * StatsStore.RECORD_BYTES, Files.size(path));
+            store.record(9, 9, 10, StatsStore.OUTCOME_WON, 3_000, 3, 15);
+        }
+        try (StatsStore store = new StatsStore(path)) {
+            assertEquals(3, store.size());
+            assertEquals(2, store.getWins(9, 9, 10));
+            assertArrayEquals(new long[] { 3_000, 5_000 }, store.getBestTimes(9, 9, 10, 5));
+        }
+    }
+
+    // two stores open on the same file (two programs) never overwrite each
+    // other's records, and each indexes the other's when it appends
+    @Test
+    void storesSharingAFileAppend(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("stats.css");
+        try (StatsStore gui = new StatsStore(path); StatsStore terminal = new StatsStore(path)) {
+            gui.record(9, 9, 10, StatsStore.OUTCOME_WON, 4_000, 1, 20);
+            gui.flush();
+            terminal.record(9, 9, 10, StatsStore.OUTCOME_WON, 2_000, 2, 20);
+            terminal.flush();
+            gui.record(9, 9, 10, StatsStore.OUTCOME_LOST, 1_000, 3, 2);
+            gui.flush();
+
+            assertEquals(3, gui.size());
+            assertArrayEquals(new long[] { 2_000, 4_000 }, gui.getBestTimes(9, 9, 10, 5));
+            assertEquals(2, terminal.size());
+        }
+
+        try (StatsStore store = new StatsStore(path)) {
+            assertEquals(3, store.size());
+            assertEquals(2, store.getWins(9, 9, 10));
+            assertEquals(StatsStore.HEADER_BYTES + 3 * StatsStore.RECORD_BYTES, Files.size(path));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class TerminalGameTest {
+    // play the keys to the end and return everything the game wrote
+    private static String play(TerminalGame game, ByteArrayOutputStream out) throws IOException {
+        game.run();
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    // the cursor of an unbounded game goes anywhere, and the first reveal there
+    // is a safe opening
+    @Test
+    void unboundedGamePagesToTheCursor() throws IOException {
+        // shift-l moves 10 cells right, 100 times
+        String keys = "L".repeat(100) + " q";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TerminalGame game = new TerminalGame(0.2, new ByteArrayInputStream(keys.getBytes(StandardCharsets.US_ASCII)),
+                out, 24, 80, false);
+
+        String screen = play(game, out);
+        assertTrue(screen.contains(" at 0,1000  f: flag"), "status line after the reveal");
+        assertFalse(screen.contains(" 0 cells  at 0,1000  f:"), "the first reveal uncovers cells");
+    }
+
+    // a lone escape key is a key of its own: it doesn't wait for or swallow the
+    // key after it, which here arrives later, as it does from a terminal
+    @Test
+    void loneEscapeDoesNothing() throws IOException {
+        InputStream typed = new ByteArrayInputStream("\033 q".getBytes(StandardCharsets.US_ASCII)) {
+            @Override
+            public synchronized int available() {
+                return 0;
+            }
+        };
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TerminalGame game = new TerminalGame(0.2, typed, out, 24, 80, false);
+
+        String screen = play(game, out);
+        assertTrue(screen.contains(" at 0,0  f: flag"), "the space after the escape key reveals");
+    }
+
+    // a board of a fixed size still shows its mine count, and nothing is played
+    // (or kept in the stats store) before the first reveal
+    @Test
+    void boundedGameShowsTheMineCount() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TerminalGame game = new TerminalGame(9, 9, 10, true, false,
+                new ByteArrayInputStream("jjq".getBytes(StandardCharsets.US_ASCII)), out, 24, 80, false);
+
+        String screen = play(game, out);
+        assertTrue(screen.contains(" 0/10 mines  0 s  press space to start"), "status line before the reveal");
+    }
+}
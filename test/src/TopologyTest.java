@@ -0,0 +1,114 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class TopologyTest {
+    private static final int[] SIZES = { 1, 2, 3, 4, 7 };
+
+    // every 2d shape down to a single cell, including 1 and 2 wide ones where a
+    // torus wraps onto the same cell from both sides
+    @Test
+    void tablesMatchACoordinateWalkIn2d() {
+        for (int height : SIZES) {
+            for (int width : SIZES) {
+                int[] dims = { height, width };
+                check(Topology.classic(height, width), dims, TopologyTest::touches);
+                check(Topology.torus(height, width), dims, TopologyTest::touchesAround);
+                check(Topology.hex(height, width), dims, TopologyTest::touchesHex);
+            }
+        }
+    }
+
+    // grids of 1 and 3 dimensions, with every dimension 1, 2 or more wide
+    @Test
+    void tablesMatchACoordinateWalkInNd() {
+        for (int size : SIZES) {
+            check(Topology.grid(size), new int[] { size }, TopologyTest::touches);
+        }
+        int[] sizes = { 1, 2, 3, 5 };
+        for (int layers : sizes) {
+            for (int height : sizes) {
+                for (int width : sizes) {
+                    int[] dims = { layers, height, width };
+                    check(Topology.grid(dims), dims, TopologyTest::touches);
+                }
+            }
+        }
+    }
+
+    private interface Touch {
+        boolean test(int[] a, int[] b, int[] dims);
+    }
+
+    // the neighbors of every cell are exactly the other cells that touch it,
+    // each listed once
+    private static void check(Topology topology, int[] dims, Touch touch) {
+        int size = topology.size();
+        int[] out = new int[topology.maxNeighbors()];
+        int[] a = new int[dims.length];
+        int[] b = new int[dims.length];
+        for (int index = 0; index < size; index++) {
+            int count = topology.neighbors(index, out);
+            assertTrue(count <= topology.maxNeighbors());
+            int[] listed = Arrays.copyOf(out, count);
+            Arrays.sort(listed);
+
+            coordinates(index, dims, a);
+            int[] expected = new int[size];
+            int n = 0;
+            for (int other = 0; other < size; other++) {
+                coordinates(other, dims, b);
+                if (other != index && touch.test(a, b, dims)) {
+                    expected[n++] = other;
+                }
+            }
+            assertArrayEquals(Arrays.copyOf(expected, n), listed,
+                    "neighbors of " + index + " on " + Arrays.toString(dims));
+        }
+    }
+
+    private static void coordinates(int index, int[] dims, int[] coords) {
+        for (int d = dims.length - 1; d >= 0; d--) {
+            coords[d] = index % dims[d];
+            index /= dims[d];
+        }
+    }
+
+    // at most one apart in every coordinate
+    private static boolean touches(int[] a, int[] b, int[] dims) {
+        for (int d = 0; d < a.length; d++) {
+            if (Math.abs(a[d] - b[d]) > 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // at most one apart in every coordinate, going either way around
+    private static boolean touchesAround(int[] a, int[] b, int[] dims) {
+        for (int d = 0; d < a.length; d++) {
+            int apart = Math.abs(a[d] - b[d]);
+            if (Math.min(apart, dims[d] - apart) > 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // the same row one apart, or the next row half a cell to either side: odd
+    // rows are shifted right, so their cells touch the next rows' col and col + 1
+    private static boolean touchesHex(int[] a, int[] b, int[] dims) {
+        int rows = b[0] - a[0];
+        int cols = b[1] - a[1];
+        if (rows == 0) {
+            return Math.abs(cols) == 1;
+        }
+        int shift = a[0] & 1;
+        return Math.abs(rows) == 1 && (cols == shift - 1 || cols == shift);
+    }
+}
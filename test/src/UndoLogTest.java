@@ -0,0 +1,94 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class UndoLogTest {
+    // a full copy of what undo has to bring back, the flags the board keeps
+    // count are checked as it is taken
+    private record Snapshot(byte[] cells, int cellsUncovered, State state) {
+        static Snapshot of(Board board) {
+            CellGrid grid = board.getCells();
+            byte[] cells = new byte[grid.size()];
+            for (int index = 0; index < cells.length; index++) {
+                cells[index] = grid.get(index);
+            }
+            int flags = 0;
+            for (byte cell : cells) {
+                flags += (cell & CellGrid.FLAGGED) != 0 ? 1 : 0;
+            }
+            assertEquals(flags, board.getFlags(), "flags kept by the board");
+            return new Snapshot(cells, board.getCellsUncovered(), board.getState());
+        }
+
+        boolean sameAs(Snapshot other) {
+            return Arrays.equals(this.cells, other.cells) && this.cellsUncovered == other.cellsUncovered
+                    && this.state == other.state;
+        }
+    }
+
+    // random clicks, flags, chords, undos and redos (losing clicks included) on
+    // random boards: after every undo and redo the board is exactly the snapshot
+    // taken after that action was first played
+    @Test
+    void undoAndRedoMatchSnapshots() {
+        SplittableRandom random = new SplittableRandom(19);
+        for (int game = 0; game < 200; game++) {
+            int height = random.nextInt(1, 20);
+            int width = random.nextInt(2, 30);
+            int nMines = random.nextInt(1, height * width / 3 + 2);
+            Board board = new Board(height, width, nMines, height / 2, width / 2, random.nextLong(), true);
+            board.setUndoEnabled(true);
+
+            // snapshots [0, current] are the applied actions, the rest were undone
+            List<Snapshot> snapshots = new ArrayList<>();
+            snapshots.add(Snapshot.of(board));
+            int current = 0;
+            for (int step = 0; step < 200; step++) {
+                int row = random.nextInt(height);
+                int col = random.nextInt(width);
+                int action = random.nextInt(10);
+                if (action < 2) {
+                    assertEquals(current > 0, board.undo(), "undo at step " + step);
+                    current = Math.max(0, current - 1);
+                    assertSnapshot(snapshots.get(current), board, "undo at step " + step);
+                } else if (action < 4) {
+                    assertEquals(current + 1 < snapshots.size(), board.redo(), "redo at step " + step);
+                    current = Math.min(snapshots.size() - 1, current + 1);
+                    assertSnapshot(snapshots.get(current), board, "redo at step " + step);
+                } else {
+                    if (action < 7) {
+                        board.leftClick(row, col);
+                    } else if (action < 9) {
+                        board.toggleFlag(row, col);
+                    } else {
+                        board.chord(row, col);
+                    }
+
+                    // an action that changed nothing isn't logged and keeps what
+                    // was undone
+                    Snapshot after = Snapshot.of(board);
+                    if (!after.sameAs(snapshots.get(current))) {
+                        snapshots.subList(current + 1, snapshots.size()).clear();
+                        snapshots.add(after);
+                        current++;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void assertSnapshot(Snapshot expected, Board board, String message) {
+        Snapshot actual = Snapshot.of(board);
+        assertArrayEquals(expected.cells(), actual.cells(), "cells after " + message);
+        assertEquals(expected.cellsUncovered(), actual.cellsUncovered(), "cells uncovered after " + message);
+        assertEquals(expected.state(), actual.state(), "state after " + message);
+    }
+}